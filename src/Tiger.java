@@ -1,6 +1,10 @@
 import control.CommandLine;
+import parser.Batch;
+import parser.CompileServer;
 import parser.Parser;
 
+import java.util.List;
+
 // the Tiger compiler main class.
 public class Tiger {
     public static void main(String[] args) throws Exception {
@@ -9,17 +13,31 @@ public class Tiger {
         // ///////////////////////////////////////////////////////
         // process command line arguments
         CommandLine cmd = new CommandLine();
-        // get the file to be compiled
-        String fileName = cmd.scan(args);
-        if (fileName == null) {
+        // get the files to be compiled
+        List<String> fileNames = cmd.scan(args);
+        if (cmd.listen() != null) {
+            // a warm JVM, compiling the files that clients send
+            new CompileServer(cmd.listen(), cmd.options(), cmd.requests(), cmd.jobs(), cmd.idle()).serve();
+            return;
+        }
+        if (fileNames.isEmpty()) {
             // no input file is given, then exit silently.
             return;
         }
+        if (cmd.connect() != null) {
+            // compiled by a server that is already warm
+            System.exit(CompileServer.connect(cmd.connect(), fileNames));
+        }
+        if (fileNames.size() > 1) {
+            // many files, compiled together in this JVM
+            new Batch(fileNames, cmd.options(), cmd.jobs()).compile();
+            return;
+        }
 
         // /////////////////////////////////////////////////////////
         // otherwise, we continue the normal compilation pipeline.
         // first, create a parser:
-        parser = new Parser(fileName);
+        parser = new Parser(fileNames.getFirst(), cmd.options());
         // then use it to parse the input file:
         parser.parse();
 
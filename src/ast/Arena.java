@@ -0,0 +1,266 @@
+package ast;
+
+import lexer.Source;
+
+import java.util.Arrays;
+
+// the abstract syntax tree of a MiniJava program, stored as
+// parallel primitive arrays indexed by node number instead of
+// one heap object per node. Every node has:
+//   a kind,
+//   a source slice [start, start + length), its main token,
+//     e.g. the name of a declaration or the operator of a binary
+//     expression, for names, literals and error messages,
+//   children, a slice of the "children" array.
+// Children are made before their parents, so the root is the last
+// node. Ast gives a tree of records over the same program.
+public class Arena {
+    // alphabetically ordered, by category
+    public enum Kind {
+        // program structure
+        CLASS,      // name, extends name or NONE, VAR_DECL*, METHOD*
+        FORMAL,     // type, name
+        MAIN_CLASS, // name, argument name, statement
+        METHOD,     // return type, name, FORMAL*, VAR_DECL*, statement*, return exp
+        NAME,       // an identifier in a declaration or a call
+        PROGRAM,    // MAIN_CLASS, CLASS*
+        VAR_DECL,   // type, name
+
+        // types, all leaves
+        BOOLEAN_TYPE,
+        CLASS_TYPE, // the slice is the class name
+        INT_ARRAY_TYPE,
+        INT_TYPE,
+
+        // statements
+        ASSIGN,         // name, exp
+        ASSIGN_ARRAY,   // name, index, exp
+        BLOCK,          // statement*
+        IF,             // condition, then, else
+        PRINT,          // exp
+        WHILE,          // condition, body
+
+        // expressions
+        ADD,            // left, right
+        AND,            // left, right
+        ARRAY_SELECT,   // array, index
+        CALL,           // object, NAME, argument*
+        FALSE,
+        ID,             // a variable, the slice is its name
+        LENGTH,         // array
+        LT,             // left, right
+        NEG,            // NUM, a negative literal
+        NEW_INT_ARRAY,  // size
+        NEW_OBJECT,     // the slice is the class name
+        NOT,            // exp
+        NUM,            // the slice is the literal
+        SUB,            // left, right
+        THIS,
+        TIMES,          // left, right
+        TRUE,
+    }
+
+    private static final Kind[] kindValues = Kind.values();
+    // the child of a node that has none in its slot, e.g. the
+    // superclass of a class without "extends"
+    public static final int NONE = -1;
+
+    public final Source source;
+    private byte[] kinds;
+    private int[] starts;
+    private int[] lengths;
+    // the children of node n are children[first[n], first[n] + count[n])
+    private int[] first;
+    private int[] count;
+    private int size = 0;
+    private int[] children;
+    private int childrenSize = 0;
+    // children pushed for the nodes under construction
+    private int[] stack = new int[64];
+    private int top = 0;
+
+    public Arena(Source source) {
+        // about one node per two tokens, one token per 5 bytes
+        this(source, source.length() / 10 + 16);
+    }
+
+    public Arena(Source source, int capacity) {
+        this.source = source;
+        this.kinds = new byte[capacity];
+        this.starts = new int[capacity];
+        this.lengths = new int[capacity];
+        this.first = new int[capacity];
+        this.count = new int[capacity];
+        this.children = new int[capacity];
+    }
+
+    // /////////////////////////////////////////////
+    // building, children first.
+
+    // the current top of the child stack, to make a node
+    // with the children pushed from now on
+    public int mark() {
+        return this.top;
+    }
+
+    public void push(int child) {
+        if (this.top == this.stack.length)
+            this.stack = Arrays.copyOf(this.stack, Math.max(8, this.top * 2));
+        this.stack[this.top++] = child;
+    }
+
+    // pop the children pushed since "mark"
+    public int[] pop(int mark) {
+        int[] popped = Arrays.copyOfRange(this.stack, mark, this.top);
+        this.top = mark;
+        return popped;
+    }
+
+    // drop the nodes from "size" on, the last ones made
+    public void truncate(int size) {
+        if (size < this.size) {
+            this.childrenSize = this.first[size];
+            this.size = size;
+        }
+    }
+
+    // room for "nodes" more nodes and "edges" more children
+    private void reserve(int nodes, int edges) {
+        if (this.size + nodes > this.kinds.length) {
+            int capacity = Math.max(this.kinds.length * 2, this.size + nodes);
+            this.kinds = Arrays.copyOf(this.kinds, capacity);
+            this.starts = Arrays.copyOf(this.starts, capacity);
+            this.lengths = Arrays.copyOf(this.lengths, capacity);
+            this.first = Arrays.copyOf(this.first, capacity);
+            this.count = Arrays.copyOf(this.count, capacity);
+        }
+        if (this.childrenSize + edges > this.children.length)
+            this.children = Arrays.copyOf(this.children, Math.max(this.children.length * 2, this.childrenSize + edges));
+    }
+
+    // make a node whose children are those pushed since "mark",
+    // and pop them
+    public int make(Kind kind, int start, int length, int mark) {
+        int n = this.top - mark;
+        reserve(1, n);
+        System.arraycopy(this.stack, mark, this.children, this.childrenSize, n);
+        this.top = mark;
+
+        this.kinds[this.size] = (byte) kind.ordinal();
+        this.starts[this.size] = start;
+        this.lengths[this.size] = length;
+        this.first[this.size] = this.childrenSize;
+        this.count[this.size] = n;
+        this.childrenSize += n;
+        return this.size++;
+    }
+
+    public int leaf(Kind kind, int start, int length) {
+        return make(kind, start, length, this.top);
+    }
+
+    public int node(Kind kind, int start, int length, int child) {
+        int mark = this.top;
+        push(child);
+        return make(kind, start, length, mark);
+    }
+
+    public int node(Kind kind, int start, int length, int child1, int child2) {
+        int mark = this.top;
+        push(child1);
+        push(child2);
+        return make(kind, start, length, mark);
+    }
+
+    public int node(Kind kind, int start, int length, int child1, int child2, int child3) {
+        int mark = this.top;
+        push(child1);
+        push(child2);
+        push(child3);
+        return make(kind, start, length, mark);
+    }
+
+    // append all nodes of "other", built over the same source, and
+    // return the offset of its nodes in this arena: node n of
+    // "other" is node offset + n here
+    public int append(Arena other) {
+        int offset = this.size;
+        int edges = this.childrenSize;
+        reserve(other.size, other.childrenSize);
+        System.arraycopy(other.kinds, 0, this.kinds, offset, other.size);
+        System.arraycopy(other.starts, 0, this.starts, offset, other.size);
+        System.arraycopy(other.lengths, 0, this.lengths, offset, other.size);
+        System.arraycopy(other.count, 0, this.count, offset, other.size);
+        for (int i = 0; i < other.size; i++)
+            this.first[offset + i] = other.first[i] + edges;
+        for (int i = 0; i < other.childrenSize; i++) {
+            int child = other.children[i];
+            this.children[edges + i] = (child == NONE) ? NONE : child + offset;
+        }
+        this.size += other.size;
+        this.childrenSize += other.childrenSize;
+        return offset;
+    }
+
+    // drop the unused capacity once the tree is complete
+    public void trim() {
+        this.kinds = Arrays.copyOf(this.kinds, this.size);
+        this.starts = Arrays.copyOf(this.starts, this.size);
+        this.lengths = Arrays.copyOf(this.lengths, this.size);
+        this.first = Arrays.copyOf(this.first, this.size);
+        this.count = Arrays.copyOf(this.count, this.size);
+        this.children = Arrays.copyOf(this.children, this.childrenSize);
+        this.stack = new int[0];
+    }
+
+    // /////////////////////////////////////////////
+    // reading.
+
+    public int size() {
+        return this.size;
+    }
+
+    // the PROGRAM node, once the parser is done
+    public int root() {
+        return this.size - 1;
+    }
+
+    public Kind kind(int node) {
+        return kindValues[this.kinds[node]];
+    }
+
+    public int start(int node) {
+        return this.starts[node];
+    }
+
+    public int length(int node) {
+        return this.lengths[node];
+    }
+
+    public int childCount(int node) {
+        return this.count[node];
+    }
+
+    // the i-th child of "node", or NONE
+    public int child(int node, int i) {
+        return this.children[this.first[node] + i];
+    }
+
+    // the source text of the main token of "node"
+    public String text(int node) {
+        return this.source.text(this.starts[node], this.lengths[node]);
+    }
+
+    public int rowNum(int node) {
+        return this.source.line(this.starts[node]);
+    }
+
+    public int colNum(int node) {
+        return this.source.column(this.starts[node]);
+    }
+
+    // the whole program as a tree of records
+    public Ast.Program tree() {
+        return new Ast.Builder(this).program(root());
+    }
+}
@@ -0,0 +1,349 @@
+package ast;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// the abstract syntax trees for MiniJava, as records.
+// The parser builds an Arena; this is the same program as one
+// object per node, made by Arena.tree(), for passes that would
+// rather pattern-match than walk node numbers.
+public class Ast {
+    // ////////////////////////////////////////////////
+    // type
+    public static class Type {
+        public sealed interface T
+                permits Boolean, ClassType, Int, IntArray {
+        }
+
+        public record Boolean() implements T {
+        }
+
+        public record ClassType(String id) implements T {
+        }
+
+        public record Int() implements T {
+        }
+
+        public record IntArray() implements T {
+        }
+    }
+    // end of type
+
+    // ////////////////////////////////////////////////
+    // expression
+    public static class Exp {
+        public sealed interface T
+                permits Add, And, ArraySelect, Call, False, Id, Length, Lt,
+                NewIntArray, NewObject, Not, Num, Sub, This, Times, True {
+        }
+
+        // e + e
+        public record Add(T left, T right) implements T {
+        }
+
+        // e && e
+        public record And(T left, T right) implements T {
+        }
+
+        // e [ e ]
+        public record ArraySelect(T array, T index) implements T {
+        }
+
+        // e . id ( args )
+        public record Call(T object, String id, List<T> args) implements T {
+        }
+
+        public record False() implements T {
+        }
+
+        // x
+        public record Id(String id) implements T {
+        }
+
+        // e . length
+        public record Length(T array) implements T {
+        }
+
+        // e < e
+        public record Lt(T left, T right) implements T {
+        }
+
+        // new int [ e ]
+        public record NewIntArray(T size) implements T {
+        }
+
+        // new id ()
+        public record NewObject(String id) implements T {
+        }
+
+        // ! e
+        public record Not(T exp) implements T {
+        }
+
+        // n, or -n
+        public record Num(int num) implements T {
+        }
+
+        // e - e
+        public record Sub(T left, T right) implements T {
+        }
+
+        public record This() implements T {
+        }
+
+        // e * e
+        public record Times(T left, T right) implements T {
+        }
+
+        public record True() implements T {
+        }
+    }
+    // end of expression
+
+    // ////////////////////////////////////////////////
+    // statement
+    public static class Stm {
+        public sealed interface T
+                permits Assign, AssignArray, Block, If, Print, While {
+        }
+
+        // x = e;
+        public record Assign(String id, Exp.T exp) implements T {
+        }
+
+        // x [ e ] = e;
+        public record AssignArray(String id, Exp.T index, Exp.T exp) implements T {
+        }
+
+        // { s* }
+        public record Block(List<T> stms) implements T {
+        }
+
+        // if ( e ) s else s
+        public record If(Exp.T cond, T thenn, T elsee) implements T {
+        }
+
+        // System.out.println ( e );
+        public record Print(Exp.T exp) implements T {
+        }
+
+        // while ( e ) s
+        public record While(Exp.T cond, T body) implements T {
+        }
+    }
+    // end of statement
+
+    // ////////////////////////////////////////////////
+    // declarations
+
+    // type id, a variable or a formal
+    public record Dec(Type.T type, String id) {
+    }
+
+    public record Method(Type.T retType,
+                         String id,
+                         List<Dec> formals,
+                         List<Dec> locals,
+                         List<Stm.T> stms,
+                         Exp.T retExp) {
+    }
+
+    // class id [extends id] { ... }, "extends" is null if absent
+    public record Class(String id,
+                        String extends_,
+                        List<Dec> decs,
+                        List<Method> methods) {
+    }
+
+    public record MainClass(String id,
+                            String arg,
+                            Stm.T stm) {
+    }
+
+    public record Program(MainClass mainClass,
+                          List<Class> classes) {
+    }
+
+    // makes the records from the nodes of an arena
+    public static class Builder {
+        private final Arena arena;
+
+        public Builder(Arena arena) {
+            this.arena = arena;
+        }
+
+        public Program program(int node) {
+            List<Class> classes = new ArrayList<>();
+            for (int i = 1; i < arena.childCount(node); i++)
+                classes.add(clazz(arena.child(node, i)));
+            return new Program(mainClass(arena.child(node, 0)), classes);
+        }
+
+        public MainClass mainClass(int node) {
+            return new MainClass(name(arena.child(node, 0)),
+                    name(arena.child(node, 1)),
+                    stm(arena.child(node, 2)));
+        }
+
+        public Class clazz(int node) {
+            int superClass = arena.child(node, 1);
+            List<Dec> decs = new ArrayList<>();
+            List<Method> methods = new ArrayList<>();
+            for (int i = 2; i < arena.childCount(node); i++) {
+                int child = arena.child(node, i);
+                switch (arena.kind(child)) {
+                    case VAR_DECL -> decs.add(dec(child));
+                    default -> methods.add(method(child));
+                }
+            }
+            return new Class(name(arena.child(node, 0)),
+                    (superClass == Arena.NONE) ? null : name(superClass),
+                    decs,
+                    methods);
+        }
+
+        public Method method(int node) {
+            List<Dec> formals = new ArrayList<>();
+            List<Dec> locals = new ArrayList<>();
+            List<Stm.T> stms = new ArrayList<>();
+            int last = arena.childCount(node) - 1;
+            for (int i = 2; i < last; i++) {
+                int child = arena.child(node, i);
+                switch (arena.kind(child)) {
+                    case FORMAL -> formals.add(dec(child));
+                    case VAR_DECL -> locals.add(dec(child));
+                    default -> stms.add(stm(child));
+                }
+            }
+            return new Method(type(arena.child(node, 0)),
+                    name(arena.child(node, 1)),
+                    formals,
+                    locals,
+                    stms,
+                    exp(arena.child(node, last)));
+        }
+
+        private Dec dec(int node) {
+            return new Dec(type(arena.child(node, 0)), name(arena.child(node, 1)));
+        }
+
+        private String name(int node) {
+            return arena.text(node);
+        }
+
+        private Type.T type(int node) {
+            return switch (arena.kind(node)) {
+                case BOOLEAN_TYPE -> new Type.Boolean();
+                case CLASS_TYPE -> new Type.ClassType(arena.text(node));
+                case INT_ARRAY_TYPE -> new Type.IntArray();
+                case INT_TYPE -> new Type.Int();
+                default -> throw new IllegalStateException(STR."not a type: \{arena.kind(node)}");
+            };
+        }
+
+        private Stm.T stm(int node) {
+            return (Stm.T) build(node);
+        }
+
+        private Exp.T exp(int node) {
+            return (Exp.T) build(node);
+        }
+
+        // the records of the statements and expressions being made,
+        // by node, each until its parent takes it
+        private Object[] records;
+        // the nodes to make, see build()
+        private int[] work = new int[64];
+
+        // the record of statement or expression "root", made children
+        // first over an explicit stack of nodes rather than by recursion,
+        // so that deeply nested statements and long operator chains
+        // cost no Java stack. A node is pushed, then its children, and
+        // then, as ~node, pushed again to be made once they are.
+        private Object build(int root) {
+            if (records == null)
+                records = new Object[arena.size()];
+            int top = 0;
+            work[top++] = root;
+            while (top > 0) {
+                int node = work[--top];
+                if (node < 0) {
+                    records[~node] = make(~node);
+                    continue;
+                }
+                int n = (arena.kind(node) == Arena.Kind.NEG) ? 0 : arena.childCount(node);
+                if (top + n + 1 > work.length)
+                    work = Arrays.copyOf(work, 2 * (top + n + 1));
+                work[top++] = ~node;
+                for (int i = 0; i < n; i++) {
+                    int child = arena.child(node, i);
+                    if (child != Arena.NONE)
+                        work[top++] = child;
+                }
+            }
+            return take(root);
+        }
+
+        private Object take(int node) {
+            Object record = records[node];
+            records[node] = null;
+            return record;
+        }
+
+        private Stm.T takeStm(int node, int i) {
+            return (Stm.T) take(arena.child(node, i));
+        }
+
+        private Exp.T takeExp(int node, int i) {
+            return (Exp.T) take(arena.child(node, i));
+        }
+
+        private String takeName(int node, int i) {
+            return (String) take(arena.child(node, i));
+        }
+
+        // the record of "node", whose children have theirs
+        private Object make(int node) {
+            return switch (arena.kind(node)) {
+                case NAME -> name(node);
+
+                case ASSIGN -> new Stm.Assign(takeName(node, 0), takeExp(node, 1));
+                case ASSIGN_ARRAY -> new Stm.AssignArray(takeName(node, 0), takeExp(node, 1), takeExp(node, 2));
+                case BLOCK -> {
+                    List<Stm.T> stms = new ArrayList<>();
+                    for (int i = 0; i < arena.childCount(node); i++)
+                        stms.add(takeStm(node, i));
+                    yield new Stm.Block(stms);
+                }
+                case IF -> new Stm.If(takeExp(node, 0), takeStm(node, 1), takeStm(node, 2));
+                case PRINT -> new Stm.Print(takeExp(node, 0));
+                case WHILE -> new Stm.While(takeExp(node, 0), takeStm(node, 1));
+
+                case ADD -> new Exp.Add(takeExp(node, 0), takeExp(node, 1));
+                case AND -> new Exp.And(takeExp(node, 0), takeExp(node, 1));
+                case ARRAY_SELECT -> new Exp.ArraySelect(takeExp(node, 0), takeExp(node, 1));
+                case CALL -> {
+                    List<Exp.T> args = new ArrayList<>();
+                    for (int i = 2; i < arena.childCount(node); i++)
+                        args.add(takeExp(node, i));
+                    yield new Exp.Call(takeExp(node, 0), takeName(node, 1), args);
+                }
+                case FALSE -> new Exp.False();
+                case ID -> new Exp.Id(arena.text(node));
+                case LENGTH -> new Exp.Length(takeExp(node, 0));
+                case LT -> new Exp.Lt(takeExp(node, 0), takeExp(node, 1));
+                case NEG -> new Exp.Num(Integer.parseInt(STR."-\{arena.text(arena.child(node, 0))}"));
+                case NEW_INT_ARRAY -> new Exp.NewIntArray(takeExp(node, 0));
+                case NEW_OBJECT -> new Exp.NewObject(arena.text(node));
+                case NOT -> new Exp.Not(takeExp(node, 0));
+                case NUM -> new Exp.Num(Integer.parseInt(arena.text(node)));
+                case SUB -> new Exp.Sub(takeExp(node, 0), takeExp(node, 1));
+                case THIS -> new Exp.This();
+                case TIMES -> new Exp.Times(takeExp(node, 0), takeExp(node, 1));
+                case TRUE -> new Exp.True();
+                default -> throw new IllegalStateException(STR."not a statement or an expression: \{arena.kind(node)}");
+            };
+        }
+    }
+}
@@ -1,7 +1,12 @@
 package control;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public class CommandLine {
     // alphabetically-ordered
@@ -22,6 +27,18 @@ public class CommandLine {
     }
 
     private final List<Arg> args;
+    // the options of each compilation
+    private Options options = Options.DEFAULT;
+    // files compiled at a time by a batch, 0 for one per core
+    private int jobs = 0;
+    // the compile server to be, or to send the files to: the path of
+    // a Unix domain socket, or a port on the loopback interface
+    private String listen = null;
+    private String connect = null;
+    // requests compiled at a time by the server, 0 for one per core
+    private int requests = 0;
+    // seconds without a request before the server exits
+    private int idle = 900;
 
     public void error(String message) {
         System.err.println(STR."Error: \{message}");
@@ -31,13 +48,18 @@ public class CommandLine {
 
     public CommandLine() {
         this.args = List.of(
+                new Arg("connect",
+                        "<socket|port>",
+                        "send the files to the compile server at <socket|port>",
+                        Kind.String,
+                        (Object x) -> this.connect = (String) x),
                 new Arg("dump",
                         "{token}",
                         "dump tokens from lexical analysis",
                         Kind.String,
                         (Object x) -> {
                             switch ((String) x) {
-                                case "token" -> Control.Lexer.dumpToken = true;
+                                case "token" -> this.options = this.options.withDumpToken(true);
                                 default -> error(STR."unknown argument: \{x}");
                             }
                         }),
@@ -49,25 +71,82 @@ public class CommandLine {
                         (_) -> {
                             usage();
                             System.exit(1);
+                        }),
+                new Arg("idle",
+                        "<seconds>",
+                        "stop the compile server after <seconds> without a request",
+                        Kind.Int,
+                        (Object x) -> this.idle = (Integer) x),
+                new Arg("jobs",
+                        "<n>",
+                        "compile <n> files at a time, 0 for one per core",
+                        Kind.Int,
+                        (Object x) -> this.jobs = (Integer) x),
+                new Arg("parser",
+                        "{rd|ll}",
+                        "parse by recursive descent, or check the syntax only with the LL(1) table",
+                        Kind.String,
+                        (Object x) -> {
+                            switch ((String) x) {
+                                case "rd" -> this.options = this.options.withLLParser(false);
+                                case "ll" -> this.options = this.options.withLLParser(true);
+                                default -> error(STR."unknown argument: \{x}");
+                            }
+                        }),
+                new Arg("pipeline",
+                        "{true|false}",
+                        "lex on a separate thread while parsing, and report stalls",
+                        Kind.Bool,
+                        (Object x) -> this.options = this.options.withPipeline((Boolean) x)),
+                new Arg("requests",
+                        "<n>",
+                        "compile <n> requests at a time in the server, 0 for one per core",
+                        Kind.Int,
+                        (Object x) -> this.requests = (Integer) x),
+                new Arg("server",
+                        "<socket|port>",
+                        "serve compile requests at <socket|port>, a warm JVM",
+                        Kind.String,
+                        (Object x) -> this.listen = (String) x),
+                new Arg("simd",
+                        "{true|false}",
+                        "scan with the vector API, if jdk.incubator.vector is present",
+                        Kind.Bool,
+                        (Object x) -> this.options = this.options.withSimd((Boolean) x)),
+                new Arg("tokcache",
+                        "{true|false}",
+                        "reuse the tokens saved in <file>.tok for an unchanged file",
+                        Kind.Bool,
+                        (Object x) -> this.options = this.options.withTokenCache((Boolean) x)),
+                new Arg("trace",
+                        "{parser}",
+                        "trace parse events to stdout, one per line",
+                        Kind.String,
+                        (Object x) -> {
+                            switch ((String) x) {
+                                case "parser" -> this.options = this.options.withTrace(true);
+                                default -> error(STR."unknown argument: \{x}");
+                            }
                         })
         );
     }
 
-    // scan the command line arguments, return the file name
-    // in it; return null if there is no file name.
-    // The file name should be unique.
-    public String scan(String[] cmdLineArgs) {
-        String filename = null;
+    // scan the command line arguments, return the files in it,
+    // in order; empty if there is none. An argument that is not
+    // an option is
+    //   a file,
+    //   a directory, for the .java files under it, or
+    //   "@file", for the arguments in "file", separated by white
+    //   space, with "#" starting a comment line.
+    public List<String> scan(String[] cmdLineArgs) {
+        List<String> fileNames = new ArrayList<>();
+        cmdLineArgs = expand(cmdLineArgs, new ArrayList<>());
 
         for (int i = 0; i < cmdLineArgs.length; i++) {
             String cmdArg = cmdLineArgs[i];
             if (!cmdArg.startsWith("-")) {
-                if (null != filename) {
-                    error("compile only one Java file one time");
-                } else {
-                    filename = cmdArg;
-                    continue;
-                }
+                addFiles(cmdArg, fileNames);
+                continue;
             }
 
             // to crawl through arguments:
@@ -120,7 +199,83 @@ public class CommandLine {
                 error(STR."invalid option: \{cmdLineArgs[i]}");
             }
         }
-        return filename;
+        return fileNames;
+    }
+
+    // the settings of the command line, once scanned
+    public Options options() {
+        return this.options;
+    }
+
+    public int jobs() {
+        return this.jobs;
+    }
+
+    public String listen() {
+        return this.listen;
+    }
+
+    public String connect() {
+        return this.connect;
+    }
+
+    public int requests() {
+        return this.requests;
+    }
+
+    public int idle() {
+        return this.idle;
+    }
+
+    // the arguments with each "@file" replaced by the arguments in it;
+    // "open" are the argfiles being expanded, which must not name
+    // themselves again
+    private String[] expand(String[] cmdLineArgs, List<Path> open) {
+        List<String> expanded = new ArrayList<>();
+        for (String cmdArg : cmdLineArgs) {
+            if (!cmdArg.startsWith("@")) {
+                expanded.add(cmdArg);
+                continue;
+            }
+            Path file = Path.of(cmdArg.substring(1)).toAbsolutePath().normalize();
+            if (open.contains(file))
+                error(STR."argument files name each other in a cycle: \{cmdArg}");
+            List<String> lines = List.of();
+            try {
+                lines = Files.readAllLines(file);
+            } catch (IOException e) {
+                error(STR."unable to read \{cmdArg.substring(1)}");
+            }
+            List<String> args = new ArrayList<>();
+            for (String line : lines) {
+                line = line.strip();
+                if (!line.isEmpty() && !line.startsWith("#"))
+                    args.addAll(List.of(line.split("\\s+")));
+            }
+            open.add(file);
+            expanded.addAll(List.of(expand(args.toArray(new String[0]), open)));
+            open.remove(open.size() - 1);
+        }
+        return expanded.toArray(new String[0]);
+    }
+
+    private void addFiles(String name, List<String> fileNames) {
+        Path path = Path.of(name);
+        if (Files.isDirectory(path)) {
+            // in path order, so that the output does not depend on the file system
+            try (Stream<Path> files = Files.walk(path)) {
+                files.filter(file -> file.toString().endsWith(".java") && Files.isRegularFile(file))
+                        .map(Path::toString)
+                        .sorted()
+                        .forEach(fileNames::add);
+            } catch (IOException e) {
+                error(STR."unable to read directory \{name}");
+            }
+        } else if (Files.isRegularFile(path)) {
+            fileNames.add(name);
+        } else {
+            error(STR."no such file or directory: \{name}");
+        }
     }
 
     private void outputSpace(int n) {
@@ -161,7 +316,7 @@ public class CommandLine {
         final int startYear = 2013;
         System.out.println(STR."""
                 The Tiger compiler. Copyright (C) \{startYear}-, SSE of USTC.
-                Usage: java Tiger [options] <filename>
+                Usage: java Tiger [options] <filename|directory|@argfile>...
                 """);
         output();
     }
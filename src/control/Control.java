@@ -1,9 +0,0 @@
-package control;
-
-public class Control {
-    // the lexer
-    public static class Lexer {
-        public static boolean dumpToken = false;
-    }
-}
-
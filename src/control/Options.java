@@ -0,0 +1,46 @@
+package control;
+
+// the options of one compilation, built by CommandLine from the command
+// line or by a caller of parser.Compiler. They are immutable, so that
+// compilations with different options may run at the same time. The
+// lexer and the parser copy those they test on hot paths into final
+// fields of their own.
+public record Options(
+        // dump tokens from lexical analysis
+        boolean dumpToken,
+        // scan with the vector API, if jdk.incubator.vector is present
+        boolean simd,
+        // reuse the tokens saved in <file>.tok for an unchanged file
+        boolean tokenCache,
+        // trace parse events to stdout, see parser.Trace
+        boolean trace,
+        // lex on a separate thread while parsing
+        boolean pipeline,
+        // check the syntax only, with the table-driven parser.LLParser
+        boolean llParser) {
+    public static final Options DEFAULT = new Options(false, false, false, false, false, false);
+
+    public Options withDumpToken(boolean dumpToken) {
+        return new Options(dumpToken, simd, tokenCache, trace, pipeline, llParser);
+    }
+
+    public Options withSimd(boolean simd) {
+        return new Options(dumpToken, simd, tokenCache, trace, pipeline, llParser);
+    }
+
+    public Options withTokenCache(boolean tokenCache) {
+        return new Options(dumpToken, simd, tokenCache, trace, pipeline, llParser);
+    }
+
+    public Options withTrace(boolean trace) {
+        return new Options(dumpToken, simd, tokenCache, trace, pipeline, llParser);
+    }
+
+    public Options withPipeline(boolean pipeline) {
+        return new Options(dumpToken, simd, tokenCache, trace, pipeline, llParser);
+    }
+
+    public Options withLLParser(boolean llParser) {
+        return new Options(dumpToken, simd, tokenCache, trace, pipeline, llParser);
+    }
+}
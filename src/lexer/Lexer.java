@@ -1,177 +1,260 @@
 package lexer;
 
-import util.Todo;
-
-import java.io.InputStream;
-import java.util.HashMap;
-import java.util.regex.Pattern;
-
-import static control.Control.Lexer.dumpToken;
-
-public record Lexer(String fileName,
-                    InputStream fileStream) {
-    static HashMap<Integer, Token> singals = new HashMap<Integer, Token>();
-    static HashMap<String, Token> nsingals = new HashMap<String, Token>();
-    private static final Pattern patternNum = Pattern.compile("0|[1-9][0-9]*");
-    //标识符
-    private static final Pattern patternAlpha = Pattern.compile("_|[A-Z]|[a-z]");
-    private static final Pattern patternAlphas = Pattern.compile("_|[A-Z]|[a-z]|[0-9]");
-    private static Integer lineNum = 1; // 初始化行号为1
-    private static Integer colNum = 0; // 初始化列号为0
-
-    public Lexer(String fileName, InputStream fileStream) {
-        this.fileStream = fileStream;
-        this.fileName = fileName;
-        nsingals.put("boolean", new Token(Token.Kind.BOOLEAN, lineNum, colNum));
-        nsingals.put("class",new Token(Token.Kind.CLASS, lineNum, colNum));
-        nsingals.put("else",new Token(Token.Kind.ELSE, lineNum, colNum));
-        nsingals.put("extends",new Token(Token.Kind.EXTENDS, lineNum, colNum));
-        nsingals.put("false",new Token(Token.Kind.FALSE, lineNum, colNum));
-        nsingals.put("if",new Token(Token.Kind.IF, lineNum, colNum));
-        nsingals.put("int",new Token(Token.Kind.INT, lineNum, colNum));
-        nsingals.put("length",new Token(Token.Kind.LENGTH, lineNum, colNum));
-        nsingals.put("main",new Token(Token.Kind.MAIN, lineNum, colNum));
-        nsingals.put("new",new Token(Token.Kind.NEW, lineNum, colNum));
-        nsingals.put("out",new Token(Token.Kind.OUT, lineNum, colNum));
-        nsingals.put("println",new Token(Token.Kind.PRINTLN, lineNum, colNum));
-        nsingals.put("public",new Token(Token.Kind.PUBLIC, lineNum, colNum));
-        nsingals.put("return",new Token(Token.Kind.RETURN, lineNum, colNum));
-        nsingals.put("static",new Token(Token.Kind.STATIC, lineNum, colNum));
-        nsingals.put("String",new Token(Token.Kind.STRING, lineNum, colNum));
-        nsingals.put("System",new Token(Token.Kind.SYSTEM, lineNum, colNum));
-        nsingals.put("this",new Token(Token.Kind.THIS, lineNum, colNum));
-        nsingals.put("true",new Token(Token.Kind.TRUE, lineNum, colNum));
-        nsingals.put("void",new Token(Token.Kind.VOID, lineNum, colNum));
-        nsingals.put("while",new Token(Token.Kind.WHILE, lineNum, colNum));
-
-        singals.put(33, new Token(Token.Kind.NOT, lineNum, colNum));		//'!'
-        singals.put(40, new Token(Token.Kind.LPAREN, lineNum, colNum));	//'('
-        singals.put(41, new Token(Token.Kind.RPAREN, lineNum, colNum));	//')'
-        singals.put(42, new Token(Token.Kind.TIMES, lineNum, colNum));	//'*'
-        singals.put(43, new Token(Token.Kind.ADD, lineNum, colNum));		//'+'
-        singals.put(44, new Token(Token.Kind.COMMA, lineNum, colNum));	//','
-        singals.put(46, new Token(Token.Kind.DOT, lineNum, colNum));		//'.'
-        singals.put(59, new Token(Token.Kind.SEMI, lineNum, colNum));		//';'
-        singals.put(61, new Token(Token.Kind.ASSIGN, lineNum, colNum));	//'='
-        singals.put(45, new Token(Token.Kind.SUB, lineNum, colNum));		//'-'
-        singals.put(60, new Token(Token.Kind.LT, lineNum, colNum));		//'<'
-        singals.put(91, new Token(Token.Kind.LBRACKET, lineNum, colNum));	//'['
-        singals.put(93, new Token(Token.Kind.RBRACKET, lineNum, colNum));		//']'
-        singals.put(123, new Token(Token.Kind.LBRACE, lineNum, colNum));	//'{'
-        singals.put(125, new Token(Token.Kind.RBRACE, lineNum, colNum));	//'}'
-    }
-
-    // When called, return the next token (refer to the code "Token.java")
-    // from the input stream.
-    // Return EOF when reaching the end of the input stream.
-    private Token nextToken0() throws Exception {
-        // 明确进入这个函数的时候 c 在上一个token的末尾符号，还是末尾符号的下一个位置
-        int c = this.fileStream.read(); // c -> ' '(12)
-        colNum++;
-        // '=' : 11
-        // colNum = 12
-
-        // skip all kinds of "blanks"
-        // think carefully about how to set up "colNum" and "rowNum" correctly?
-        while (' ' == c || '\t' == c || '\n' == c) {
-            if (c == '\n') {
-                // 如果读到换行符，更新行号并将列号重置为0
-                lineNum++;
-                colNum = 1;
-            } else {
-                // 否则，增加列号
-                colNum++;
-                // 13
+import control.Options;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+public class Lexer implements TokenCursor {
+    private final Source source;
+    // index of the next byte to scan in "source"
+    private int pos = 0;
+    private final int limit;
+    // the current line, i.e. one more than the '\n's before "pos"
+    private int line = 1;
+    // start offset and line of the token last scanned
+    private int tokenStart;
+    private int tokenLine;
+    // kind of the token last scanned, null before the first one
+    private Token.Kind kind;
+    // the "-dump token" output, made on the first dumped token,
+    // and the stream it goes to
+    private TokenDump dump;
+    private final OutputStream output;
+    // the vector fast path, null for the scalar one
+    private final VectorScanner vector;
+    // the options of this compilation, with "-dump token", tested
+    // for every token, in a field of its own
+    private final Options options;
+    private final boolean dumpToken;
+
+    // the vector scanner is used only when asked for, and only when
+    // the incubator module is present. Otherwise, the scalar code runs.
+    private static final boolean vectorAvailable =
+            ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    // character classes of the scanner, indexed by the input byte
+    private static final int CLASS_OTHER = 0;
+    private static final int CLASS_LETTER = 1; // [A-Za-z_]
+    private static final int CLASS_ZERO = 2;   // 0
+    private static final int CLASS_DIGIT = 3;  // [1-9]
+    private static final int NUM_CLASSES = 4;
+    private static final byte[] charClass = new byte[256];
+
+    // states of the minimized DFA for identifiers and integer literals,
+    // "STOP" means the current byte does not belong to the token.
+    private static final int STATE_STOP = 0;
+    private static final int STATE_START = 1;
+    private static final int STATE_ID = 2;
+    private static final int STATE_ZERO = 3;
+    private static final int STATE_NUM = 4;
+    // transition[state * NUM_CLASSES + class] -> next state
+    private static final byte[] transition = {
+            // OTHER       LETTER      ZERO        DIGIT
+            STATE_STOP, STATE_STOP, STATE_STOP, STATE_STOP, // STOP
+            STATE_STOP, STATE_ID, STATE_ZERO, STATE_NUM,    // START
+            STATE_STOP, STATE_ID, STATE_ID, STATE_ID,       // ID
+            STATE_STOP, STATE_STOP, STATE_NUM, STATE_NUM,   // ZERO, "0" followed by digits is rejected below
+            STATE_STOP, STATE_STOP, STATE_NUM, STATE_NUM,   // NUM
+    };
+    // the token kind accepted in each state, null if not accepting
+    private static final Token.Kind[] accept = {
+            null, null, Token.Kind.ID, Token.Kind.NUM, Token.Kind.NUM,
+    };
+
+    // what each byte means to the trivia skipper
+    private static final int TRIVIA_TOKEN = 0;   // may start a token
+    private static final int TRIVIA_BLANK = 1;   // ' ', '\t', '\r'
+    private static final int TRIVIA_NEWLINE = 2; // '\n'
+    private static final int TRIVIA_SLASH = 3;   // '/', may start a comment
+    private static final int TRIVIA_JUNK = 4;   // can not start any token
+    private static final byte[] trivia = new byte[256];
+
+    static {
+        for (int c = 'a'; c <= 'z'; c++)
+            charClass[c] = CLASS_LETTER;
+        for (int c = 'A'; c <= 'Z'; c++)
+            charClass[c] = CLASS_LETTER;
+        charClass['_'] = CLASS_LETTER;
+        charClass['0'] = CLASS_ZERO;
+        for (int c = '1'; c <= '9'; c++)
+            charClass[c] = CLASS_DIGIT;
+
+        for (int c = 0; c < 256; c++) {
+            if (charClass[c] == CLASS_OTHER && "+,-*<{}[]()=.!;&".indexOf(c) < 0)
+                trivia[c] = TRIVIA_JUNK;
+        }
+        trivia[' '] = TRIVIA_BLANK;
+        trivia['\t'] = TRIVIA_BLANK;
+        trivia['\r'] = TRIVIA_BLANK;
+        trivia['\n'] = TRIVIA_NEWLINE;
+        trivia['/'] = TRIVIA_SLASH;
+    }
+
+    public Lexer(Source source) {
+        this(source, Options.DEFAULT);
+    }
+
+    public Lexer(Source source, Options options) {
+        this(source, options, System.out);
+    }
+
+    // a lexer that dumps its tokens, with Options.dumpToken, to "output"
+    public Lexer(Source source, Options options, OutputStream output) {
+        this.source = source;
+        this.output = output;
+        this.limit = source.length();
+        this.options = options;
+        this.dumpToken = options.dumpToken();
+        this.vector = (options.simd() && vectorAvailable) ? new VectorScanner(source) : null;
+    }
+
+    // a lexer that starts scanning at "pos", on line "line"
+    private Lexer(Source source, Options options, int pos, int line) {
+        this(source, options);
+        this.pos = pos;
+        this.line = line;
+    }
+
+    // the next byte of the source, or -1 at the end
+    private int read() {
+        return (this.pos < this.limit) ? this.source.byteAt(this.pos++) : -1;
+    }
+
+    // the next byte of the source without consuming it, or -1 at the end
+    private int peek() {
+        return (this.pos < this.limit) ? this.source.byteAt(this.pos) : -1;
+    }
+
+    // skip blanks, comments and bytes that can not start a token,
+    // up to the start of the next token or the end of the source.
+    // This is a single loop, so arbitrarily long runs of comments
+    // or junk need no extra stack.
+    private void skipTrivia() {
+        int pos = this.pos;
+        int line = this.line;
+
+        while (pos < this.limit) {
+            int c = this.source.byteAt(pos);
+            switch (trivia[c]) {
+                case TRIVIA_TOKEN:
+                    this.pos = pos;
+                    this.line = line;
+                    return;
+                case TRIVIA_BLANK:
+                case TRIVIA_NEWLINE:
+                    if (this.vector != null) {
+                        int end = this.vector.endOfBlanks(pos);
+                        line += this.vector.countNewlines(pos, end);
+                        pos = end;
+                        break;
+                    }
+                    if (c == '\n')
+                        line++;
+                    pos++;
+                    break;
+                case TRIVIA_SLASH:
+                    int next = (pos + 1 < this.limit) ? this.source.byteAt(pos + 1) : -1;
+                    if (next == '/') {
+                        // "//" up to, but not including, the end of line
+                        pos += 2;
+                        if (this.vector != null)
+                            pos = this.vector.indexOf((byte) '\n', pos);
+                        while (pos < this.limit && this.source.byteAt(pos) != '\n')
+                            pos++;
+                    } else if (next == '*') {
+                        // "/*" up to and including "*/", or the end of
+                        // the source for an unterminated comment
+                        pos += 2;
+                        while (pos < this.limit) {
+                            if (this.vector != null) {
+                                // jump to the next '*'
+                                int star = this.vector.indexOf((byte) '*', pos);
+                                line += this.vector.countNewlines(pos, star);
+                                pos = star;
+                                if (pos == this.limit)
+                                    break;
+                            }
+                            c = this.source.byteAt(pos++);
+                            if (c == '\n')
+                                line++;
+                            else if (c == '*' && pos < this.limit && this.source.byteAt(pos) == '/') {
+                                pos++;
+                                break;
+                            }
+                        }
+                    } else {
+                        // Error.error("error", "lexer", "unrecognize char \"/\"", line);
+                        pos++;
+                    }
+                    break;
+                default:
+                    // junk bytes are dropped:
+                    // Error.error("error", "lexer", "unrecognize char \"" + (char)c + "\"", line);
+                    pos++;
+                    break;
             }
-            c = this.fileStream.read(); // c -> 't'(13)
         }
-        // = 后面的空格处理不应++
-        // colNum++;
+        this.pos = pos;
+        this.line = line;
+    }
+
+    // When called, scan the next token (refer to the code "Token.java")
+    // from the source buffer and return its kind. The token spans
+    // from "tokenStart" up to "pos".
+    // Return EOF when reaching the end of the input stream.
+    private Token.Kind nextToken0() {
+        // columns are not tracked here: a token only records
+        // its offset, and its column is computed from that on demand.
+        skipTrivia();
+        int start = this.pos;
+        this.tokenStart = start;
+        this.tokenLine = this.line;
 
+        int c = read();
         switch (c) {
             case -1:
-                // The value for "lineNum" is now "null",
-                // you should modify this to an appropriate
-                // line number for the "EOF" token.
-                return new Token(Token.Kind.EOF, lineNum, 0);
+                return Token.Kind.EOF;
             case '+':
-                return new Token(Token.Kind.ADD, lineNum, colNum);
+                return Token.Kind.ADD;
             case ',':
-                return new Token(Token.Kind.COMMA, lineNum, colNum);
+                return Token.Kind.COMMA;
             case '-':
-                return new Token(Token.Kind.SUB, lineNum, colNum);
+                return Token.Kind.SUB;
             case '*':
-                return new Token(Token.Kind.TIMES, lineNum, colNum);
+                return Token.Kind.TIMES;
             case '<':
-                return new Token(Token.Kind.LT, lineNum, colNum);
+                return Token.Kind.LT;
             case '{':
-                return new Token(Token.Kind.LBRACE, lineNum, colNum);
+                return Token.Kind.LBRACE;
             case '}':
-                return new Token(Token.Kind.RBRACE, lineNum, colNum);
+                return Token.Kind.RBRACE;
             case '[':
-                return new Token(Token.Kind.LBRACKET, lineNum, colNum);
+                return Token.Kind.LBRACKET;
             case ']':
-                return new Token(Token.Kind.RBRACKET, lineNum, colNum);
+                return Token.Kind.RBRACKET;
             case '(':
-                return new Token(Token.Kind.LPAREN, lineNum, colNum);
+                return Token.Kind.LPAREN;
             case ')':
-                return new Token(Token.Kind.RPAREN, lineNum, colNum);
+                return Token.Kind.RPAREN;
             case '=':
-                return new Token(Token.Kind.ASSIGN, lineNum, colNum);
+                return Token.Kind.ASSIGN;
             case '.':
-                return new Token(Token.Kind.DOT, lineNum, colNum);
+                return Token.Kind.DOT;
             case '!':
-                return new Token(Token.Kind.NOT, lineNum, colNum);
+                return Token.Kind.NOT;
             case ';':
-                return new Token(Token.Kind.SEMI, lineNum, colNum);
-            case '/':
-                this.fileStream.mark(1);
-                c = this.fileStream.read();
-                if (c == '/') {
-                    this.fileStream.reset();
-                    while (c != '\n') {
-                        c = this.fileStream.read();
-                    }
-                    lineNum++;
-                    colNum = 1;
-                    return nextToken0();
-                }
-                else if (c == '*') {
-                    // this.fileStream.reset();
-                    c = this.fileStream.read();
-                    while (true) {
-                        if (c != '*'){
-                            c = this.fileStream.read();
-                            if (c == '\n') {
-                                lineNum++;
-                                colNum = 1;
-                            }
-                        }
-                        else {
-                            // this.fileStream.mark(1);
-                            c = this.fileStream.read();
-                            if (c == '/') {
-                                return nextToken0();
-                            }
-                            else {
-                                c = this.fileStream.read();
-                            }
-                        }
-                    }
-                }
+                return Token.Kind.SEMI;
             case '&':
-                this.fileStream.mark(1);
-                c = this.fileStream.read();
-                if(c == '&'){
-                    int lie = colNum;
-                    colNum += 1;
-                    return new Token(Token.Kind.AND, lineNum, lie);
-                }else{
-                    this.fileStream.reset();
-                    // Error.error("error", "lexer", "'&' not allowed", lineNum, colNum);
-                    // colNum++;
-                    return new Token(Token.Kind.AND, lineNum, colNum);
+                if (peek() == '&') {
+                    this.pos++;
                 }
+                // Error.error("error", "lexer", "'&' not allowed", lineNum, colNum);
+                return Token.Kind.AND;
             default:
                 // Lab 1, exercise 9: supply missing code to
                 // recognize other kind of tokens.
@@ -181,67 +264,319 @@ public record Lexer(String fileName,
                 // If you find you are writing a lot of code, you
                 // are on the wrong way.
                 // throw new Todo(c);
-                String temp = "" + (char)c;
-                this.fileStream.mark(1);
-                c = this.fileStream.read();
-
-                if(patternNum.matcher(temp).matches()){
+                // skipTrivia() leaves only bytes that start a token
+                int state = transition[STATE_START * NUM_CLASSES + charClass[c]];
+                int last = state;
+                if (state == STATE_ID && this.vector != null) {
+                    // an identifier stays in state ID up to its end
+                    this.pos = this.vector.endOfIdentifier(this.pos);
+                    state = STATE_STOP;
+                }
+                while (state != STATE_STOP) {
+                    last = state;
+                    c = peek();
+                    state = (c < 0) ? STATE_STOP : transition[state * NUM_CLASSES + charClass[c]];
+                    if (state != STATE_STOP)
+                        this.pos++;
+                }
+                int len = this.pos - start;
+                if (accept[last] == Token.Kind.NUM) {
                     //数字开头
-                    while(patternNum.matcher(""+(char)c).matches()){
-                        temp += (char)c;
-                        this.fileStream.mark(1);
-                        c = this.fileStream.read();
-                    }
-                    this.fileStream.reset();
-                    if(temp.startsWith("0") && 1 != temp.length()){
-                        // Error.error("error", "lexer", "'&' not allowed", lineNum);
-                        System.exit(0);
-                    }
-                    int lie = colNum;
-                    colNum += temp.length()-1;
-                    // 此时 colNum 和 c 都指向当前 token 的末尾符号
-                    return new Token(Token.Kind.NUM, temp, lineNum, lie);
-                }else if(patternAlpha.matcher(temp).matches()){
-                    //字母或下滑线开头
-                    while(patternAlphas.matcher(""+(char)c).matches()){
-                        temp += (char)c;
-                        this.fileStream.mark(1);
-                        c = this.fileStream.read();
-                    }
-                    this.fileStream.reset();
-                    Token tt = nsingals.get(temp);
-                    if(null != tt) {
-                        // 如果是关键字
-                        tt.rowNum = lineNum;
-                        tt.colNum = colNum;
-                        colNum += temp.length()-1;
-                        return tt;
-                    }
-                    // 不是关键字
-                    int lie = colNum;
-                    colNum += temp.length()-1;
-                    return new Token(Token.Kind.ID, temp, lineNum, lie);
-                }else{
-                    // Error.error("error", "lexer", "unrecognize char \"" + temp + "\"", lineNum);
-                    return nextToken0();
-                    //return null;
+                    // a leading 0, as in "01", is reported by the parser,
+                    // which can go on to find the other errors
+                    return Token.Kind.NUM;
                 }
+                //字母或下滑线开头
+                Token.Kind kind = keyword(start, len);
+                // 不是关键字
+                if (null == kind)
+                    kind = Token.Kind.ID;
+                return kind;
         }
     }
 
+    // the keyword spelled by the bytes [start, start + len), or null.
+    // The switch on the length and the first byte leaves at most
+    // two candidates, which are compared in place in the source
+    // buffer: no String is made and no table is built per lexer.
+    private Token.Kind keyword(int start, int len) {
+        int c = this.source.byteAt(start);
+        switch (len) {
+            case 2:
+                if (c == 'i' && is(start, "if")) return Token.Kind.IF;
+                return null;
+            case 3:
+                switch (c) {
+                    case 'i': return is(start, "int") ? Token.Kind.INT : null;
+                    case 'n': return is(start, "new") ? Token.Kind.NEW : null;
+                    case 'o': return is(start, "out") ? Token.Kind.OUT : null;
+                    default: return null;
+                }
+            case 4:
+                switch (c) {
+                    case 'e': return is(start, "else") ? Token.Kind.ELSE : null;
+                    case 'm': return is(start, "main") ? Token.Kind.MAIN : null;
+                    case 't':
+                        if (is(start, "this")) return Token.Kind.THIS;
+                        return is(start, "true") ? Token.Kind.TRUE : null;
+                    case 'v': return is(start, "void") ? Token.Kind.VOID : null;
+                    default: return null;
+                }
+            case 5:
+                switch (c) {
+                    case 'c': return is(start, "class") ? Token.Kind.CLASS : null;
+                    case 'f': return is(start, "false") ? Token.Kind.FALSE : null;
+                    case 'w': return is(start, "while") ? Token.Kind.WHILE : null;
+                    default: return null;
+                }
+            case 6:
+                switch (c) {
+                    case 'l': return is(start, "length") ? Token.Kind.LENGTH : null;
+                    case 'p': return is(start, "public") ? Token.Kind.PUBLIC : null;
+                    case 'r': return is(start, "return") ? Token.Kind.RETURN : null;
+                    case 's': return is(start, "static") ? Token.Kind.STATIC : null;
+                    case 'S':
+                        if (is(start, "String")) return Token.Kind.STRING;
+                        return is(start, "System") ? Token.Kind.SYSTEM : null;
+                    default: return null;
+                }
+            case 7:
+                switch (c) {
+                    case 'b': return is(start, "boolean") ? Token.Kind.BOOLEAN : null;
+                    case 'e': return is(start, "extends") ? Token.Kind.EXTENDS : null;
+                    case 'p': return is(start, "println") ? Token.Kind.PRINTLN : null;
+                    default: return null;
+                }
+            default:
+                return null;
+        }
+    }
+
+    // whether the source at "start" spells "keyword", whose first
+    // character has already been matched
+    private boolean is(int start, String keyword) {
+        for (int i = 1; i < keyword.length(); i++) {
+            if (this.source.byteAt(start + i) != keyword.charAt(i))
+                return false;
+        }
+        return true;
+    }
+
+    private void dump(Token.Kind kind, int start, int length, int line) {
+        if (this.dump == null)
+            this.dump = new TokenDump(this.output);
+        this.dump.token(this.source, kind, start, length, line);
+    }
+
+    // the Lexer itself is a cursor over its tokens, scanning one
+    // token per "advance()" with no allocation, for consumers that
+    // look at each token once, such as "-dump token".
+    @Override
+    public void advance() {
+        if (this.kind == Token.Kind.EOF)
+            return;
+        this.kind = nextToken0();
+        if (dumpToken)
+            dump(this.kind, this.tokenStart, this.pos - this.tokenStart, this.tokenLine);
+    }
+
+    @Override
+    public Token.Kind kind() {
+        return this.kind;
+    }
+
+    @Override
+    public int start() {
+        return this.tokenStart;
+    }
+
+    @Override
+    public int length() {
+        return this.pos - this.tokenStart;
+    }
+
+    @Override
+    public int line() {
+        return this.tokenLine;
+    }
+
+    @Override
+    public Token token() {
+        return new Token(this.kind, this.source, this.tokenStart, this.pos - this.tokenStart);
+    }
 
     public Token nextToken() {
-        Token t = null;
+        advance();
+        return token();
+    }
+
+    // lex the whole source at once into a packed token stream,
+    // without making a Token object for each token.
+    // The stream always ends with an EOF token.
+    public TokenStream lexAll() {
+        TokenStream tokens = new TokenStream(this.source);
+
+        do {
+            advance();
+            tokens.add(this.kind, this.tokenStart, this.pos - this.tokenStart, this.tokenLine);
+        } while (this.kind != Token.Kind.EOF);
+        tokens.trim();
+        return tokens;
+    }
 
-        try {
-            t = this.nextToken0();
-        } catch (Exception e) {
-            //e.printStackTrace();
-            System.exit(1);
+    // sources smaller than two chunks are not worth splitting
+    private static final int MIN_CHUNK_SIZE = 1 << 20;
+
+    // lex the whole source like lexAll(), but split it into chunks
+    // that are lexed in parallel on "pool". The result is the same
+    // token stream that lexAll() produces. Small sources, or a pool
+    // with a single worker, are lexed sequentially.
+    public TokenStream lexAllParallel(ForkJoinPool pool) {
+        int chunks = Math.min(pool.getParallelism() * 4, this.limit / MIN_CHUNK_SIZE);
+        if (pool.getParallelism() < 2 || chunks < 2)
+            return lexAll();
+        return lexAllParallel(pool, chunks);
+    }
+
+    // the tokens lexed from one chunk [from, to) of the source.
+    // A chunk keeps the tokens whose start lies in [from, to), the last
+    // of which may run past "to". Its lines count from 1 at "from".
+    private static class Chunk {
+        final int from;
+        final int to;
+        TokenStream tokens;
+        // scanStarts[i] is where the scan for token i began, i.e., the
+        // end of token i - 1 (or "from"), before skipping blanks.
+        int[] scanStarts;
+        // where the scan for the token after the last one begins
+        int end;
+        // '\n's in [from, to)
+        int newlines;
+
+        Chunk(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    TokenStream lexAllParallel(ForkJoinPool pool, int n) {
+        // cut at line starts, where a chunk is least likely to begin
+        // inside a token or a "//" comment.
+        Chunk[] chunks = new Chunk[n];
+        int from = 0;
+        for (int i = 0; i < n; i++) {
+            int to = (i == n - 1) ? this.limit : (int) ((long) this.limit * (i + 1) / n);
+            while (to < this.limit && this.source.byteAt(to - 1) != '\n')
+                to++;
+            chunks[i] = new Chunk(from, Math.max(from, to));
+            from = chunks[i].to;
+        }
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (Chunk chunk : chunks)
+            tasks.add(pool.submit(() -> lexChunk(chunk)));
+        for (ForkJoinTask<?> task : tasks)
+            task.join();
+
+        // stitch the chunks together. "scan" is where the sequential
+        // lexer would begin its next scan. When it is a scan start
+        // of a chunk, the lexers agree from there on, as no state but
+        // the position carries over from one token to the next. Otherwise,
+        // the chunk began inside a comment or a token, and we lex
+        // sequentially until we are back in step with some chunk.
+        TokenStream tokens = new TokenStream(this.source);
+        int[] newlinesBefore = new int[n];
+        for (int i = 1; i < n; i++)
+            newlinesBefore[i] = newlinesBefore[i - 1] + chunks[i - 1].newlines;
+        int scan = 0;
+        int k = 0;
+        Lexer lexer = null;
+        while (true) {
+            while (k < n - 1 && scan >= chunks[k].to)
+                k++;
+            Chunk chunk = chunks[k];
+            int j = Arrays.binarySearch(chunk.scanStarts, 0, chunk.tokens.size(), scan);
+            if (j >= 0) {
+                tokens.append(chunk.tokens, j, newlinesBefore[k]);
+                if (tokens.kind(tokens.size() - 1) == Token.Kind.EOF)
+                    break;
+                scan = chunk.end;
+                lexer = null;
+                continue;
+            }
+            if (lexer == null) {
+                int line = newlinesBefore[k] + 1;
+                for (int i = chunk.from; i < scan; i++) {
+                    if (this.source.byteAt(i) == '\n')
+                        line++;
+                }
+                lexer = new Lexer(this.source, this.options, scan, line);
+            }
+            Token.Kind kind = lexer.nextToken0();
+            tokens.add(kind, lexer.tokenStart, lexer.pos - lexer.tokenStart, lexer.tokenLine);
+            if (kind == Token.Kind.EOF)
+                break;
+            scan = lexer.pos;
+        }
+        tokens.trim();
+
+        if (dumpToken)
+            dumpAll(tokens);
+        return tokens;
+    }
+
+    private void dumpAll(TokenStream tokens) {
+        for (int i = 0; i < tokens.size(); i++)
+            dump(tokens.kind(i), tokens.start(i), tokens.length(i), tokens.line(i));
+    }
+
+    // lex the whole source like lexAllParallel(), but, when the token
+    // cache is on, replay the stream cached for an unchanged source,
+    // or save the stream for the next run, see TokenCache
+    public TokenStream lexAllCached(ForkJoinPool pool) {
+        if (!this.options.tokenCache())
+            return lexAllParallel(pool);
+
+        TokenCache cache = new TokenCache(this.source);
+        TokenStream tokens = cache.load();
+        if (tokens != null) {
+            if (dumpToken)
+                dumpAll(tokens);
+            return tokens;
+        }
+        tokens = lexAllParallel(pool);
+        cache.store(tokens);
+        return tokens;
+    }
+
+    private void lexChunk(Chunk chunk) {
+        Lexer lexer = new Lexer(this.source, this.options, chunk.from, 1);
+        TokenStream tokens = new TokenStream(this.source, (chunk.to - chunk.from) / 5 + 16);
+        int[] scanStarts = new int[(chunk.to - chunk.from) / 5 + 16];
+        boolean last = (chunk.to == this.limit);
+
+        while (true) {
+            int scan = lexer.pos;
+            Token.Kind kind = lexer.nextToken0();
+            if (lexer.tokenStart >= chunk.to && !(last && kind == Token.Kind.EOF)) {
+                chunk.end = scan;
+                break;
+            }
+            if (tokens.size() == scanStarts.length)
+                scanStarts = Arrays.copyOf(scanStarts, scanStarts.length * 2);
+            scanStarts[tokens.size()] = scan;
+            tokens.add(kind, lexer.tokenStart, lexer.pos - lexer.tokenStart, lexer.tokenLine);
+            if (kind == Token.Kind.EOF) {
+                chunk.end = this.limit;
+                break;
+            }
         }
-        if (dumpToken) {
-            System.out.println(t);
+        int newlines = 0;
+        for (int i = chunk.from; i < chunk.to; i++) {
+            if (this.source.byteAt(i) == '\n')
+                newlines++;
         }
-        return t;
+        chunk.tokens = tokens;
+        chunk.scanStarts = scanStarts;
+        chunk.newlines = newlines;
     }
 }
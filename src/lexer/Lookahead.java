@@ -0,0 +1,93 @@
+package lexer;
+
+// a cursor with "peek(k)" over any other cursor, e.g. a Lexer
+// scanning on demand: the current token and up to "capacity - 1"
+// tokens after it are kept in a ring buffer of primitive slots,
+// so that looking ahead allocates nothing.
+public class Lookahead implements TokenCursor {
+    private final TokenCursor in;
+    private final Source source;
+    private final int mask;
+    private final Token.Kind[] kinds;
+    private final int[] starts;
+    private final int[] lengths;
+    private final int[] lines;
+    // the slot of the current token
+    private int head = 0;
+    // the number of buffered tokens, the current one included;
+    // 0 before the first advance()
+    private int count = 0;
+
+    // "depth" is the largest k that peek(k) accepts
+    public Lookahead(TokenCursor in, Source source, int depth) {
+        this.in = in;
+        this.source = source;
+        int capacity = Integer.highestOneBit(depth) << 1;
+        this.mask = capacity - 1;
+        this.kinds = new Token.Kind[capacity];
+        this.starts = new int[capacity];
+        this.lengths = new int[capacity];
+        this.lines = new int[capacity];
+    }
+
+    // pull the next token of "in" into the slot after the last one
+    private void fill() {
+        this.in.advance();
+        int slot = (this.head + this.count) & this.mask;
+        this.kinds[slot] = this.in.kind();
+        this.starts[slot] = this.in.start();
+        this.lengths[slot] = this.in.length();
+        this.lines[slot] = this.in.line();
+        this.count++;
+    }
+
+    @Override
+    public void advance() {
+        if (this.count > 0) {
+            if (this.kinds[this.head] == Token.Kind.EOF)
+                return;
+            this.head = (this.head + 1) & this.mask;
+            this.count--;
+        }
+        if (this.count == 0)
+            fill();
+    }
+
+    // the kind of the k-th token after the current one;
+    // EOF past the end of the input
+    public Token.Kind peek(int k) {
+        if (k > this.mask)
+            throw new IllegalArgumentException(STR."lookahead \{k} is beyond the depth \{this.mask}");
+        while (this.count <= k) {
+            if (this.kinds[(this.head + this.count - 1) & this.mask] == Token.Kind.EOF)
+                return Token.Kind.EOF;
+            fill();
+        }
+        return this.kinds[(this.head + k) & this.mask];
+    }
+
+    @Override
+    public Token.Kind kind() {
+        return this.kinds[this.head];
+    }
+
+    @Override
+    public int start() {
+        return this.starts[this.head];
+    }
+
+    @Override
+    public int length() {
+        return this.lengths[this.head];
+    }
+
+    @Override
+    public int line() {
+        return this.lines[this.head];
+    }
+
+    @Override
+    public Token token() {
+        return new Token(kind(), this.source, start(), length());
+    }
+}
@@ -0,0 +1,96 @@
+package lexer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// the content of a source file, as one read-only byte buffer.
+// The lexer scans it by plain index arithmetic instead of
+// pulling one byte at a time from a stream.
+public class Source {
+    public final String fileName;
+    private final ByteBuffer buffer;
+    private final int length;
+    // offsets at which each line starts. It is built on the first
+    // position query, as most tokens never need their position.
+    private volatile int[] lineStarts;
+
+    public Source(String fileName, ByteBuffer buffer) {
+        this.fileName = fileName;
+        this.buffer = buffer;
+        this.length = buffer.limit();
+    }
+
+    // map the whole file into memory. The mapping stays valid
+    // after the channel is closed.
+    // Token offsets are "int"s, so a single file is limited to 2 GB.
+    public static Source map(String fileName) throws IOException {
+        try (FileChannel channel = FileChannel.open(Path.of(fileName), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE)
+                throw new IOException(STR."file \{fileName} is larger than 2 GB");
+            return new Source(fileName, channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    ByteBuffer buffer() {
+        return this.buffer;
+    }
+
+    public int length() {
+        return this.length;
+    }
+
+    // the byte at "index", as an unsigned value
+    public int byteAt(int index) {
+        return this.buffer.get(index) & 0xff;
+    }
+
+    // the text in [start, start + length)
+    public String text(int start, int length) {
+        byte[] bytes = new byte[length];
+        this.buffer.get(start, bytes);
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    private int[] lineStarts() {
+        int[] starts = this.lineStarts;
+        if (starts != null)
+            return starts;
+
+        int lines = 1;
+        for (int i = 0; i < this.length; i++) {
+            if (byteAt(i) == '\n')
+                lines++;
+        }
+        starts = new int[lines];
+        for (int i = 0, line = 1; i < this.length; i++) {
+            if (byteAt(i) == '\n')
+                starts[line++] = i + 1;
+        }
+        this.lineStarts = starts;
+        return starts;
+    }
+
+    // the 1-based line number of "offset"
+    public int line(int offset) {
+        int index = Arrays.binarySearch(lineStarts(), offset);
+        // when "offset" is not a line start, the insertion point
+        // is one past the line containing it.
+        return (index >= 0) ? index + 1 : -index - 1;
+    }
+
+    // the offset at which the 1-based "line" starts
+    public int lineStart(int line) {
+        return lineStarts()[line - 1];
+    }
+
+    // the 1-based column number of "offset"
+    public int column(int offset) {
+        return offset - lineStarts()[line(offset) - 1] + 1;
+    }
+}
@@ -54,40 +54,53 @@ public class Token {
     }
 
     // kind of the token
-    public Kind kind;
-    // extra lexeme for this token, if any
-    public String lexeme;
-    // position of the token in the source file: (row, column)
-    public Integer rowNum;
-    public Integer colNum;
+    public final Kind kind;
+    // the token is the slice [start, start + length) of "source"
+    public final Source source;
+    public final int start;
+    public final int length;
+    // extra lexeme for this token, if any, made from the slice on demand
+    private String lexeme;
 
 
     public Token(Kind kind,
-                 Integer rowNum,
-                 Integer colNum) {
+                 Source source,
+                 int start,
+                 int length) {
         this.kind = kind;
-        this.rowNum = rowNum;
-        this.colNum = colNum;
+        this.source = source;
+        this.start = start;
+        this.length = length;
     }
 
-    public Token(Kind kind,
-                 String lexeme,
-                 Integer rowNum,
-                 Integer colNum) {
-        this.kind = kind;
-        this.lexeme = lexeme;
-        this.rowNum = rowNum;
-        this.colNum = colNum;
+    // only identifiers and integer literals carry a lexeme
+    public String lexeme() {
+        if (this.kind != Kind.ID && this.kind != Kind.NUM)
+            return null;
+        if (this.lexeme == null)
+            this.lexeme = this.source.text(this.start, this.length);
+        return this.lexeme;
+    }
+
+    // position of the token in the source file: (row, column),
+    // both computed on demand from the line index of the source.
+    public int rowNum() {
+        return this.source.line(this.start);
+    }
+
+    public int colNum() {
+        return this.source.column(this.start);
     }
 
     @Override
     public String toString() {
         String s;
+        String lexeme = lexeme();
 
         s = STR."""
-        : \{(this.lexeme == null) ? "<NONE>" : this.lexeme}
-        : at row \{this.rowNum == null ? "<null>" : rowNum.toString()}
-        : at column \{this.colNum == null ? "<null>" : colNum.toString()}
+        : \{(lexeme == null) ? "<NONE>" : lexeme}
+        : at row \{rowNum()}
+        : at column \{colNum()}
         """;
         // System.out.println(this.kind);
         return this.kind + s;
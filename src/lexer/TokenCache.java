@@ -0,0 +1,131 @@
+package lexer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+// the token stream of a source file, saved next to it as
+// "<file>.tok", so that an unchanged file is not lexed again.
+// The cache file is:
+//   "TOKS", version, number of token kinds, source length,
+//   SHA-256 of the source (32 bytes), number of tokens,
+//   then the token arrays, see TokenStream.write().
+// All ints are little-endian. A cache file is used only when all
+// of its header matches the source and this lexer; bump VERSION
+// whenever the lexer would produce a different stream.
+public class TokenCache {
+    private static final int MAGIC = 0x534b4f54; // "TOKS"
+    private static final int VERSION = 1;
+    private static final int HASH_BYTES = 32;
+    private static final int HEADER_BYTES = 5 * Integer.BYTES + HASH_BYTES;
+
+    private final Source source;
+    private final Path path;
+    private byte[] hash;
+
+    public TokenCache(Source source) {
+        this.source = source;
+        this.path = Path.of(source.fileName + ".tok");
+    }
+
+    private byte[] hash() {
+        if (this.hash == null) {
+            try {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                digest.update(this.source.buffer().duplicate().clear());
+                this.hash = digest.digest();
+            } catch (NoSuchAlgorithmException e) {
+                // every Java platform provides SHA-256
+                throw new AssertionError(e);
+            }
+        }
+        return this.hash;
+    }
+
+    // the cached tokens of the source, or null if there is no
+    // cache file, or it is stale or broken
+    public TokenStream load() {
+        if (!Files.isRegularFile(this.path))
+            return null;
+        try (FileChannel channel = FileChannel.open(this.path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES)
+                return null;
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            in.order(ByteOrder.LITTLE_ENDIAN);
+            if (in.getInt() != MAGIC
+                    || in.getInt() != VERSION
+                    || in.getInt() != Token.Kind.values().length
+                    || in.getInt() != this.source.length())
+                return null;
+            byte[] hash = new byte[HASH_BYTES];
+            in.get(hash);
+            if (!Arrays.equals(hash, hash()))
+                return null;
+            int count = in.getInt();
+            if (count <= 0 || size != HEADER_BYTES + TokenStream.bytes(count))
+                return null;
+            TokenStream tokens = TokenStream.read(this.source, in, count);
+            return (tokens != null && valid(tokens)) ? tokens : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    // a cheap sanity check, so that a damaged cache file with
+    // a correct header does not crash the parser
+    private boolean valid(TokenStream tokens) {
+        int limit = this.source.length();
+        for (int i = 0; i < tokens.size(); i++) {
+            int start = tokens.start(i);
+            if (start < 0 || tokens.length(i) < 0 || start + tokens.length(i) > limit)
+                return false;
+        }
+        return tokens.kind(tokens.size() - 1) == Token.Kind.EOF;
+    }
+
+    // save "tokens" as the cache of the source. The file is written
+    // aside and then renamed, so that readers never see half of it.
+    // The cache is only an optimization: failing to write it is not
+    // an error.
+    public void store(TokenStream tokens) {
+        long size = HEADER_BYTES + TokenStream.bytes(tokens.size());
+        if (size > Integer.MAX_VALUE)
+            return;
+        ByteBuffer out = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(MAGIC)
+                .putInt(VERSION)
+                .putInt(Token.Kind.values().length)
+                .putInt(this.source.length())
+                .put(hash())
+                .putInt(tokens.size());
+        tokens.write(out);
+        out.flip();
+
+        Path temp = null;
+        try {
+            Path dir = this.path.toAbsolutePath().getParent();
+            temp = Files.createTempFile(dir, this.path.getFileName().toString(), ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (out.hasRemaining())
+                    channel.write(out);
+            }
+            Files.move(temp, this.path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            try {
+                if (temp != null)
+                    Files.deleteIfExists(temp);
+            } catch (IOException _) {
+            }
+        }
+    }
+}
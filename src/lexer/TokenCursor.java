@@ -0,0 +1,21 @@
+package lexer;
+
+// a reusable position in a sequence of tokens: "advance()" moves
+// to the next token, and the other methods describe the current one,
+// so reading a token allocates nothing.
+// A cursor starts before the first token, so "advance()" must be
+// called once before reading, and it stops at the final EOF token.
+public interface TokenCursor {
+    void advance();
+
+    Token.Kind kind();
+
+    int start();
+
+    int length();
+
+    int line();
+
+    // materialize the current token, e.g., for error messages
+    Token token();
+}
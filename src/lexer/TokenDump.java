@@ -0,0 +1,101 @@
+package lexer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+// the "-dump token" output, in the format of Token.toString().
+// Lexemes are copied straight from the source bytes into one large
+// buffer, instead of formatting and printing a String per token.
+class TokenDump {
+    private static final byte[][] kindNames = new byte[Token.Kind.values().length][];
+
+    static {
+        for (Token.Kind kind : Token.Kind.values())
+            kindNames[kind.ordinal()] = (kind + ": ").getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static final byte[] NONE = "<NONE>".getBytes(StandardCharsets.ISO_8859_1);
+    private static final byte[] ROW = ": at row ".getBytes(StandardCharsets.ISO_8859_1);
+    private static final byte[] COLUMN = ": at column ".getBytes(StandardCharsets.ISO_8859_1);
+    // the longest entry but for the lexeme, which is written in pieces
+    private static final int MAX_FIXED = 64;
+
+    private final OutputStream out;
+    private final byte[] buffer = new byte[1 << 16];
+    private int size = 0;
+
+    TokenDump(OutputStream out) {
+        this.out = out;
+    }
+
+    void token(Source source, Token.Kind kind, int start, int length, int line) {
+        put(kindNames[kind.ordinal()]);
+        if (kind == Token.Kind.ID || kind == Token.Kind.NUM)
+            put(source, start, length);
+        else
+            put(NONE);
+        putByte('\n');
+        put(ROW);
+        putInt(line);
+        putByte('\n');
+        put(COLUMN);
+        putInt(start - source.lineStart(line) + 1);
+        putByte('\n');
+        putByte('\n');
+        if (kind == Token.Kind.EOF)
+            flush();
+    }
+
+    void flush() {
+        try {
+            this.out.write(this.buffer, 0, this.size);
+            this.out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.size = 0;
+    }
+
+    private void ensure(int n) {
+        if (this.size + n > this.buffer.length)
+            flush();
+    }
+
+    private void put(byte[] bytes) {
+        ensure(MAX_FIXED);
+        System.arraycopy(bytes, 0, this.buffer, this.size, bytes.length);
+        this.size += bytes.length;
+    }
+
+    private void put(Source source, int start, int length) {
+        while (length > 0) {
+            ensure(1);
+            int n = Math.min(length, this.buffer.length - this.size);
+            source.buffer().get(start, this.buffer, this.size, n);
+            this.size += n;
+            start += n;
+            length -= n;
+        }
+    }
+
+    private void putByte(int b) {
+        ensure(1);
+        this.buffer[this.size++] = (byte) b;
+    }
+
+    // the decimal digits of a non-negative "n"
+    private void putInt(int n) {
+        ensure(MAX_FIXED);
+        int end = this.size + 10;
+        int i = end;
+        do {
+            this.buffer[--i] = (byte) ('0' + n % 10);
+            n /= 10;
+        } while (n != 0);
+        int digits = end - i;
+        System.arraycopy(this.buffer, i, this.buffer, this.size, digits);
+        this.size += digits;
+    }
+}
@@ -0,0 +1,180 @@
+package lexer;
+
+// the tokens of a Lexer scanning on its own thread, handed to one
+// consumer thread through a lock-free single-producer, single-consumer
+// ring of primitive slots, so that scanning overlaps parsing.
+// Each side publishes its position only once per batch of tokens,
+// or before it waits, so the two threads rarely share a cache line.
+public class TokenPipe implements TokenCursor {
+    private static final Token.Kind[] kindValues = Token.Kind.values();
+    private static final int CAPACITY = 1 << 14;
+    private static final int MASK = CAPACITY - 1;
+    private static final int BATCH = 256;
+    // busy spins before a waiting side yields its CPU
+    private static final int SPINS = 64;
+
+    private final Lexer lexer;
+    private final Source source;
+    private final byte[] kinds = new byte[CAPACITY];
+    private final int[] starts = new int[CAPACITY];
+    private final int[] lengths = new int[CAPACITY];
+    private final int[] lines = new int[CAPACITY];
+    // the number of tokens published by the producer,
+    // and released by the consumer
+    private volatile long tail = 0;
+    private volatile long head = 0;
+    // what stopped the producer, if it did not reach EOF
+    private volatile Throwable failure;
+    // set by the consumer once it reads no more tokens,
+    // so that the producer stops rather than wait for room
+    private volatile boolean cancelled = false;
+    // the number of times the producer found the ring full,
+    // and the consumer found it empty; each is written by its side only
+    private volatile long producerStalls = 0;
+    private long consumerStalls = 0;
+
+    // the consumer side: the next token to read, the tokens
+    // known to be published, and the current token
+    private long read = 0;
+    private long available = 0;
+    private Token.Kind kind;
+    private int start;
+    private int length;
+    private int line;
+
+    public TokenPipe(Lexer lexer, Source source) {
+        this.lexer = lexer;
+        this.source = source;
+    }
+
+    // start the lexer thread
+    public void startLexer() {
+        Thread producer = new Thread(this::produce, "lexer");
+        producer.setDaemon(true);
+        producer.start();
+    }
+
+    private void produce() {
+        long write = 0;
+        long limit = CAPACITY;
+        try {
+            Token.Kind kind;
+            do {
+                if (write == limit) {
+                    this.tail = write;
+                    long released = this.head;
+                    if (released + CAPACITY == write) {
+                        this.producerStalls++;
+                        for (int spins = 0; (released = this.head) + CAPACITY == write; spins++) {
+                            if (this.cancelled)
+                                return;
+                            pause(spins);
+                        }
+                    }
+                    limit = released + CAPACITY;
+                }
+                this.lexer.advance();
+                kind = this.lexer.kind();
+                int slot = (int) write & MASK;
+                this.kinds[slot] = (byte) kind.ordinal();
+                this.starts[slot] = this.lexer.start();
+                this.lengths[slot] = this.lexer.length();
+                this.lines[slot] = this.lexer.line();
+                write++;
+                if ((write & (BATCH - 1)) == 0) {
+                    this.tail = write;
+                    if (this.cancelled)
+                        return;
+                }
+            } while (kind != Token.Kind.EOF);
+        } catch (Throwable e) {
+            this.failure = e;
+        }
+        this.tail = write;
+    }
+
+    private static void pause(int spins) {
+        if (spins < SPINS)
+            Thread.onSpinWait();
+        else
+            Thread.yield();
+    }
+
+    // wait until the producer has published more than "read" tokens
+    private long awaitTokens() {
+        long published = this.tail;
+        if (published != this.read)
+            return published;
+        this.consumerStalls++;
+        for (int spins = 0; ; spins++) {
+            published = this.tail;
+            if (published != this.read)
+                return published;
+            if (this.failure != null)
+                throw new IllegalStateException("the lexer thread failed", this.failure);
+            pause(spins);
+        }
+    }
+
+    // the consumer is done, before EOF or not: the producer stops.
+    // Once cancelled, the pipe must not be read any more
+    public void cancel() {
+        this.cancelled = true;
+    }
+
+    @Override
+    public void advance() {
+        if (this.kind == Token.Kind.EOF)
+            return;
+        if (this.read == this.available) {
+            this.head = this.read;
+            this.available = awaitTokens();
+        }
+        int slot = (int) this.read & MASK;
+        this.kind = kindValues[this.kinds[slot]];
+        this.start = this.starts[slot];
+        this.length = this.lengths[slot];
+        this.line = this.lines[slot];
+        this.read++;
+        if ((this.read & (BATCH - 1)) == 0)
+            this.head = this.read;
+    }
+
+    @Override
+    public Token.Kind kind() {
+        return this.kind;
+    }
+
+    @Override
+    public int start() {
+        return this.start;
+    }
+
+    @Override
+    public int length() {
+        return this.length;
+    }
+
+    @Override
+    public int line() {
+        return this.line;
+    }
+
+    @Override
+    public Token token() {
+        return new Token(this.kind, this.source, this.start, this.length);
+    }
+
+    // the number of tokens read so far
+    public long tokens() {
+        return this.read;
+    }
+
+    public long producerStalls() {
+        return this.producerStalls;
+    }
+
+    public long consumerStalls() {
+        return this.consumerStalls;
+    }
+}
@@ -0,0 +1,194 @@
+package lexer;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// all tokens of a source file, stored as parallel primitive
+// arrays instead of one Token object per token:
+// kind (as the ordinal of Token.Kind), start offset, length and line.
+public class TokenStream {
+    private static final Token.Kind[] kindValues = Token.Kind.values();
+
+    public final Source source;
+    private byte[] kinds;
+    private int[] starts;
+    private int[] lengths;
+    private int[] lines;
+    private int size = 0;
+
+    public TokenStream(Source source) {
+        // MiniJava sources average a bit more than 5 bytes per token
+        this(source, source.length() / 5 + 16);
+    }
+
+    TokenStream(Source source, int capacity) {
+        this.source = source;
+        this.kinds = new byte[capacity];
+        this.starts = new int[capacity];
+        this.lengths = new int[capacity];
+        this.lines = new int[capacity];
+    }
+
+    void add(Token.Kind kind, int start, int length, int line) {
+        if (this.size == this.kinds.length) {
+            int capacity = this.size * 2;
+            this.kinds = Arrays.copyOf(this.kinds, capacity);
+            this.starts = Arrays.copyOf(this.starts, capacity);
+            this.lengths = Arrays.copyOf(this.lengths, capacity);
+            this.lines = Arrays.copyOf(this.lines, capacity);
+        }
+        this.kinds[this.size] = (byte) kind.ordinal();
+        this.starts[this.size] = start;
+        this.lengths[this.size] = length;
+        this.lines[this.size] = line;
+        this.size++;
+    }
+
+    // append the tokens of "other" from "index" on, shifting
+    // their lines by "lineOffset"
+    void append(TokenStream other, int index, int lineOffset) {
+        int count = other.size - index;
+        int capacity = this.kinds.length;
+        while (capacity < this.size + count)
+            capacity *= 2;
+        if (capacity != this.kinds.length) {
+            this.kinds = Arrays.copyOf(this.kinds, capacity);
+            this.starts = Arrays.copyOf(this.starts, capacity);
+            this.lengths = Arrays.copyOf(this.lengths, capacity);
+            this.lines = Arrays.copyOf(this.lines, capacity);
+        }
+        System.arraycopy(other.kinds, index, this.kinds, this.size, count);
+        System.arraycopy(other.starts, index, this.starts, this.size, count);
+        System.arraycopy(other.lengths, index, this.lengths, this.size, count);
+        for (int i = 0; i < count; i++)
+            this.lines[this.size + i] = other.lines[index + i] + lineOffset;
+        this.size += count;
+    }
+
+    // drop the unused capacity once the stream is complete
+    void trim() {
+        if (this.size == this.kinds.length)
+            return;
+        this.kinds = Arrays.copyOf(this.kinds, this.size);
+        this.starts = Arrays.copyOf(this.starts, this.size);
+        this.lengths = Arrays.copyOf(this.lengths, this.size);
+        this.lines = Arrays.copyOf(this.lines, this.size);
+    }
+
+    // the bytes that write(), and then read(), take for "size" tokens
+    static long bytes(int size) {
+        return (long) size * (1 + 3 * Integer.BYTES);
+    }
+
+    // write the arrays to "out", as the kinds followed by
+    // the starts, the lengths and the lines
+    void write(ByteBuffer out) {
+        out.put(this.kinds, 0, this.size);
+        out.asIntBuffer().put(this.starts, 0, this.size)
+                .put(this.lengths, 0, this.size)
+                .put(this.lines, 0, this.size);
+        out.position(out.position() + 3 * Integer.BYTES * this.size);
+    }
+
+    // read "size" tokens in the layout of write() from "in";
+    // null if some kind is not a Token.Kind
+    static TokenStream read(Source source, ByteBuffer in, int size) {
+        TokenStream tokens = new TokenStream(source, size);
+        in.get(tokens.kinds);
+        for (byte kind : tokens.kinds) {
+            if (kind < 0 || kind >= kindValues.length)
+                return null;
+        }
+        in.asIntBuffer().get(tokens.starts).get(tokens.lengths).get(tokens.lines);
+        in.position(in.position() + 3 * Integer.BYTES * size);
+        tokens.size = size;
+        return tokens;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public Token.Kind kind(int index) {
+        return kindValues[this.kinds[index]];
+    }
+
+    public int start(int index) {
+        return this.starts[index];
+    }
+
+    public int length(int index) {
+        return this.lengths[index];
+    }
+
+    public int line(int index) {
+        return this.lines[index];
+    }
+
+    // materialize the token at "index", e.g., for error messages
+    public Token token(int index) {
+        return new Token(kind(index), this.source, this.starts[index], this.lengths[index]);
+    }
+
+    public Cursor cursor() {
+        return new Cursor(0);
+    }
+
+    // a cursor whose first advance() moves to the token at "index"
+    public Cursor cursor(int index) {
+        return new Cursor(index);
+    }
+
+    // the index of the token starting at offset "start",
+    // or a negative number if no token starts there
+    public int indexAt(int start) {
+        return Arrays.binarySearch(this.starts, 0, this.size, start);
+    }
+
+    // a position in the stream, with arbitrary lookahead.
+    // The cursor stops at the final EOF token.
+    public class Cursor implements TokenCursor {
+        private int index;
+
+        private Cursor(int index) {
+            this.index = index - 1;
+        }
+
+        @Override
+        public void advance() {
+            if (this.index < size - 1)
+                this.index++;
+        }
+
+        @Override
+        public Token.Kind kind() {
+            return kindValues[kinds[this.index]];
+        }
+
+        // the kind of the k-th token after the current one;
+        // EOF past the end of the stream
+        public Token.Kind peek(int k) {
+            return kindValues[kinds[Math.min(this.index + k, size - 1)]];
+        }
+
+        @Override
+        public int start() {
+            return starts[this.index];
+        }
+
+        @Override
+        public int length() {
+            return lengths[this.index];
+        }
+
+        @Override
+        public int line() {
+            return lines[this.index];
+        }
+
+        @Override
+        public Token token() {
+            return TokenStream.this.token(this.index);
+        }
+    }
+}
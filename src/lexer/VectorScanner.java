@@ -0,0 +1,102 @@
+package lexer;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteOrder;
+
+// finds the ends of byte runs with the vector API, classifying
+// 16 to 64 source bytes per step, depending on the hardware.
+// Only the lexer uses this class, and only when the
+// "jdk.incubator.vector" module is present, see Lexer.
+class VectorScanner {
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+
+    private final Source source;
+    private final MemorySegment segment;
+    private final int limit;
+
+    VectorScanner(Source source) {
+        this.source = source;
+        this.segment = MemorySegment.ofBuffer(source.buffer());
+        this.limit = source.length();
+    }
+
+    private ByteVector load(int pos) {
+        return ByteVector.fromMemorySegment(SPECIES, this.segment, pos, ByteOrder.nativeOrder());
+    }
+
+    // the first index from "pos" on whose byte is not one of
+    // ' ', '\t', '\r' and '\n', or the end of the source
+    int endOfBlanks(int pos) {
+        for (; pos + LANES <= this.limit; pos += LANES) {
+            ByteVector v = load(pos);
+            VectorMask<Byte> blank = v.eq((byte) ' ')
+                    .or(v.eq((byte) '\t'))
+                    .or(v.eq((byte) '\r'))
+                    .or(v.eq((byte) '\n'));
+            if (!blank.allTrue())
+                return pos + blank.not().firstTrue();
+        }
+        while (pos < this.limit) {
+            int c = this.source.byteAt(pos);
+            if (c != ' ' && c != '\t' && c != '\r' && c != '\n')
+                break;
+            pos++;
+        }
+        return pos;
+    }
+
+    // the first index from "pos" on whose byte is "b", or the end of the source
+    int indexOf(byte b, int pos) {
+        for (; pos + LANES <= this.limit; pos += LANES) {
+            VectorMask<Byte> hit = load(pos).eq(b);
+            if (hit.anyTrue())
+                return pos + hit.firstTrue();
+        }
+        while (pos < this.limit && this.source.byteAt(pos) != (b & 0xff))
+            pos++;
+        return pos;
+    }
+
+    // the first index from "pos" on whose byte is not in [A-Za-z0-9_],
+    // or the end of the source
+    int endOfIdentifier(int pos) {
+        for (; pos + LANES <= this.limit; pos += LANES) {
+            ByteVector v = load(pos);
+            // bytes >= 0x80 are negative here, and fall in no range
+            ByteVector lower = v.or((byte) 0x20);
+            VectorMask<Byte> letter = lower.compare(VectorOperators.GE, (byte) 'a')
+                    .and(lower.compare(VectorOperators.LE, (byte) 'z'));
+            VectorMask<Byte> digit = v.compare(VectorOperators.GE, (byte) '0')
+                    .and(v.compare(VectorOperators.LE, (byte) '9'));
+            VectorMask<Byte> part = letter.or(digit).or(v.eq((byte) '_'));
+            if (!part.allTrue())
+                return pos + part.not().firstTrue();
+        }
+        while (pos < this.limit) {
+            int c = this.source.byteAt(pos);
+            if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '_'))
+                break;
+            pos++;
+        }
+        return pos;
+    }
+
+    // the number of '\n's in [from, to)
+    int countNewlines(int from, int to) {
+        int count = 0;
+        int pos = from;
+        for (; pos + LANES <= to; pos += LANES)
+            count += load(pos).eq((byte) '\n').trueCount();
+        for (; pos < to; pos++) {
+            if (this.source.byteAt(pos) == '\n')
+                count++;
+        }
+        return count;
+    }
+}
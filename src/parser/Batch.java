@@ -0,0 +1,103 @@
+package parser;
+
+import control.Options;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+// the compilation of many files in one JVM, which pays for its start-up
+// and for warming up the JIT once rather than once per file. The files
+// are parsed concurrently on a work-stealing pool, on which each parser
+// also parses the classes of a large file in parallel. The syntax errors
+// are printed in the order of the files on the command line, those of
+// each file as soon as it and every file before it are done, after its
+// dumped tokens and traced events, which are kept apart per file.
+public class Batch {
+    private final List<String> fileNames;
+    private final Options options;
+    private final ForkJoinPool pool;
+
+    // "threads" is 0 for one per core
+    public Batch(List<String> fileNames, Options options, int threads) {
+        this(fileNames, options, newPool(threads));
+    }
+
+    // a batch on a pool shared with others, see CompileServer
+    Batch(List<String> fileNames, Options options, ForkJoinPool pool) {
+        this.fileNames = fileNames;
+        this.options = options;
+        this.pool = pool;
+    }
+
+    static ForkJoinPool newPool(int threads) {
+        return new ForkJoinPool((threads > 0) ? threads : Runtime.getRuntime().availableProcessors());
+    }
+
+    // parse every file and report its syntax errors;
+    // abort if there is any
+    public void compile() {
+        int errors = report(System.out);
+        pool.shutdown();
+        if (errors > 0)
+            System.exit(1);
+    }
+
+    // parse every file and print its syntax errors to "out", with a
+    // summary if there is any; return the number of errors
+    int report(PrintStream out) {
+        int n = fileNames.size();
+        // the largest files first, so that none of them is left to the end
+        // of the batch, parsing alone while the other threads are idle
+        Integer[] order = new Integer[n];
+        long[] sizes = new long[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+            sizes[i] = new File(fileNames.get(i)).length();
+        }
+        Arrays.sort(order, Comparator.comparingLong((Integer i) -> sizes[i]).reversed());
+        List<ForkJoinTask<List<Diagnostic>>> tasks = new ArrayList<>(n);
+        for (int i = 0; i < n; i++)
+            tasks.add(null);
+        // the tokens dumped and the events traced for each file
+        ByteArrayOutputStream[] outputs = new ByteArrayOutputStream[n];
+        for (int i : order) {
+            if (options.dumpToken() || options.trace())
+                outputs[i] = new ByteArrayOutputStream();
+            tasks.set(i, pool.submit(() -> compile(fileNames.get(i), outputs[i])));
+        }
+
+        int errors = 0;
+        int failed = 0;
+        for (int i = 0; i < n; i++) {
+            List<Diagnostic> diagnostics = tasks.get(i).join();
+            if (outputs[i] != null) {
+                byte[] output = outputs[i].toByteArray();
+                out.write(output, 0, output.length);
+            }
+            for (Diagnostic diagnostic : diagnostics)
+                out.println(diagnostic.format(fileNames.get(i)));
+            errors += diagnostics.size();
+            if (!diagnostics.isEmpty())
+                failed++;
+        }
+        if (errors > 0)
+            out.println(STR."Error: \{errors} syntax error(s) in \{failed} of \{n} files, compilation aborting...\n");
+        return errors;
+    }
+
+    // "output" is null unless tokens are dumped or events traced
+    private List<Diagnostic> compile(String fileName, ByteArrayOutputStream output) {
+        Parser parser = new Parser(fileName, options);
+        parser.pool = this.pool;
+        if (output != null)
+            parser.output = output;
+        return Compiler.check(parser).diagnostics();
+    }
+}
@@ -0,0 +1,298 @@
+package parser;
+
+import control.Options;
+import lexer.Lexer;
+import lexer.Source;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// a compile server: a JVM that stays up, with the lexer and the parser
+// compiled by the JIT, so that compiling a small file costs milliseconds
+// rather than the start-up of a JVM and a parse in the interpreter.
+// It listens on a Unix domain socket, or on a port of the loopback
+// interface, and each connection is one request, in lines of UTF-8:
+//   the client sends the absolute paths of its files, then an empty line;
+//   the server answers with what "Tiger <files>" would print, then
+//   "exit <status>".
+// Each connection runs on a virtual thread; at most "requests" of them
+// are read and compiled at a time, the others wait their turn, and all
+// share one pool for their files. A connection that does not send its
+// request within REQUEST_SECONDS is closed. The server exits after
+// "idle" seconds without a request.
+public class CompileServer {
+    private static final int REQUEST_SECONDS = 10;
+
+    private final String address;
+    private final Options options;
+    private final ForkJoinPool pool;
+    private final Semaphore permits;
+    private final long idleNanos;
+    // closes the connections that are too slow to send their request
+    private final ScheduledExecutorService deadlines = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "deadlines");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // the requests read and in progress, and the end of the last one;
+    // "active" is notified when it drops to zero
+    private final AtomicInteger active = new AtomicInteger();
+    private volatile long lastRequest = System.nanoTime();
+    // set once the server no longer accepts connections
+    private volatile boolean closed;
+
+    // "options" are those of every request; "requests" is 0 for
+    // one per core
+    public CompileServer(String address, Options options, int requests, int jobs, int idleSeconds) {
+        this.address = address;
+        this.options = options;
+        this.pool = Batch.newPool(jobs);
+        this.permits = new Semaphore((requests > 0) ? requests : Runtime.getRuntime().availableProcessors(), true);
+        this.idleNanos = idleSeconds * 1_000_000_000L;
+    }
+
+    // a port number is on the loopback interface, anything else is
+    // the path of a Unix domain socket
+    private static SocketAddress socketAddress(String address) {
+        if (address.matches("\\d+"))
+            return new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(address));
+        return UnixDomainSocketAddress.of(address);
+    }
+
+    private static SocketChannel open(SocketAddress address) throws IOException {
+        return (address instanceof UnixDomainSocketAddress)
+                ? SocketChannel.open(StandardProtocolFamily.UNIX)
+                : SocketChannel.open(StandardProtocolFamily.INET);
+    }
+
+    // /////////////////////////////////////////////
+    // the server.
+
+    // serve requests until the server has been idle for long enough
+    public void serve() throws IOException {
+        SocketAddress address = socketAddress(this.address);
+        boolean unix = address instanceof UnixDomainSocketAddress;
+        if (unix) {
+            // a socket file left by a server that is gone
+            try (SocketChannel channel = open(address)) {
+                channel.connect(address);
+                System.out.println(STR."Error: a server is already listening at \{this.address}");
+                System.exit(1);
+            } catch (IOException e) {
+                Files.deleteIfExists(Path.of(this.address));
+            }
+        }
+
+        warmUp();
+        try (ServerSocketChannel server = unix
+                ? ServerSocketChannel.open(StandardProtocolFamily.UNIX)
+                : ServerSocketChannel.open(StandardProtocolFamily.INET)) {
+            server.bind(address);
+            Thread watcher = new Thread(() -> watch(server), "idle");
+            watcher.setDaemon(true);
+            watcher.start();
+            System.err.println(STR."server: listening at \{this.address}");
+            while (true) {
+                SocketChannel client;
+                try {
+                    client = server.accept();
+                } catch (ClosedChannelException e) {
+                    // closed by watch()
+                    break;
+                }
+                Thread.ofVirtual().start(() -> handle(client));
+            }
+            // a request read as the server closed
+            closed = true;
+            synchronized (active) {
+                while (active.get() > 0)
+                    active.wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (unix)
+                Files.deleteIfExists(Path.of(this.address));
+            pool.shutdown();
+            deadlines.shutdownNow();
+        }
+        System.err.println("server: idle, exiting");
+    }
+
+    // close "server" once no request has come for "idleNanos"
+    private void watch(ServerSocketChannel server) {
+        while (true) {
+            try {
+                Thread.sleep(Math.min(1000, Math.max(1, idleNanos / 1_000_000)));
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (active.get() == 0 && System.nanoTime() - lastRequest >= idleNanos) {
+                try {
+                    server.close();
+                } catch (IOException e) {
+                    // the accept loop ends either way
+                }
+                return;
+            }
+        }
+    }
+
+    // a connection counts as a request, which keeps the server up,
+    // only once the request has been read
+    private void handle(SocketChannel client) {
+        try (client) {
+            permits.acquire();
+            try {
+                List<String> fileNames = request(client);
+                active.incrementAndGet();
+                try {
+                    // too late once the server is exiting
+                    if (!closed)
+                        compile(client, fileNames);
+                } finally {
+                    lastRequest = System.nanoTime();
+                    if (active.decrementAndGet() == 0) {
+                        synchronized (active) {
+                            active.notifyAll();
+                        }
+                    }
+                }
+            } finally {
+                permits.release();
+            }
+        } catch (ClosedChannelException e) {
+            System.err.println(STR."server: no request within \{REQUEST_SECONDS} seconds, connection closed");
+        } catch (Exception e) {
+            System.err.println(STR."server: request failed: \{e}");
+        }
+    }
+
+    // the file names sent on "client", up to the empty line; "client"
+    // is closed if they do not come within REQUEST_SECONDS
+    private List<String> request(SocketChannel client) throws IOException {
+        ScheduledFuture<?> deadline = deadlines.schedule(() -> {
+            try {
+                client.close();
+            } catch (IOException e) {
+                // the read fails either way
+            }
+        }, REQUEST_SECONDS, TimeUnit.SECONDS);
+        try {
+            BufferedReader in = new BufferedReader(new InputStreamReader(Channels.newInputStream(client), StandardCharsets.UTF_8));
+            List<String> fileNames = new ArrayList<>();
+            String line;
+            while ((line = in.readLine()) != null && !line.isEmpty())
+                fileNames.add(line);
+            return fileNames;
+        } finally {
+            deadline.cancel(false);
+        }
+    }
+
+    // compile "fileNames" and answer on "client"
+    private void compile(SocketChannel client, List<String> fileNames) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(bytes, false, StandardCharsets.UTF_8);
+        int status = (new Batch(fileNames, options, pool).report(out) > 0) ? 1 : 0;
+        out.println(STR."exit \{status}");
+        out.flush();
+        client.write(ByteBuffer.wrap(bytes.toByteArray()));
+    }
+
+    // a small program with every construct, parsed until the JIT
+    // has compiled the lexer and the parser
+    private static final String WARM_UP = """
+            class WarmUp {
+                public static void main(String[] a) {
+                    System.out.println(new A().run(10));
+                }
+            }
+            class A extends B {
+                int[] xs;
+                boolean done;
+                B other;
+                public int run(int n) {
+                    int i;
+                    xs = new int[n];
+                    i = 0;
+                    while (i < n && !done) {
+                        xs[i] = i * 2 + 1 - -3;
+                        if (xs[i] < 10) i = i + 1; else done = true;
+                    }
+                    { System.out.println(xs.length); }
+                    return this.sum(xs, other.get(i, true));
+                }
+            }
+            class B {
+                public int get(int i, boolean b) {
+                    return (i + 1) * 2;
+                }
+            }
+            """;
+
+    private static void warmUp() {
+        byte[] text = WARM_UP.getBytes(StandardCharsets.ISO_8859_1);
+        Source source = new Source("warm-up", ByteBuffer.wrap(text));
+        for (int i = 0; i < 20_000; i++) {
+            new Parser(source, new Lexer(source).lexAll().cursor()).parseClasses(true);
+        }
+    }
+
+    // /////////////////////////////////////////////
+    // the client.
+
+    // send "fileNames" to the server at "address", print its answer,
+    // and return the exit status it gives
+    public static int connect(String address, List<String> fileNames) throws IOException {
+        SocketAddress socketAddress = socketAddress(address);
+        try (SocketChannel channel = open(socketAddress)) {
+            try {
+                channel.connect(socketAddress);
+            } catch (IOException e) {
+                System.out.println(STR."Error: no compile server at \{address}");
+                return 1;
+            }
+            StringBuilder request = new StringBuilder();
+            for (String fileName : fileNames)
+                request.append(Path.of(fileName).toAbsolutePath()).append('\n');
+            request.append('\n');
+            channel.write(ByteBuffer.wrap(request.toString().getBytes(StandardCharsets.UTF_8)));
+
+            BufferedReader in = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.startsWith("exit "))
+                    return Integer.parseInt(line.substring(5));
+                System.out.println(line);
+            }
+            System.out.println(STR."Error: the compile server at \{address} closed the connection");
+            return 1;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package parser;
+
+import ast.Arena;
+import ast.Ast;
+import control.Options;
+import lexer.Source;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+// the compiler as a library, for a host that compiles many sources in
+// one long-running JVM, such as a build service: a source is a file or
+// in memory, the outcome is a value, and nothing ends the JVM. The
+// methods are thread-safe, each compilation having a parser of its own
+// and its own Options, Options.DEFAULT if none are given.
+public final class Compiler {
+    // the outcome of one compilation: its syntax errors in source order,
+    // and its syntax tree if there is none, unless Options.llParser
+    // only checked the syntax, up to the first error
+    public record Result(String fileName, Arena arena, List<Diagnostic> diagnostics) {
+        public boolean ok() {
+            return diagnostics.isEmpty();
+        }
+
+        // the tree as records; null if there are syntax errors,
+        // or no tree was made
+        public Ast.Program tree() {
+            return (arena == null) ? null : arena.tree();
+        }
+    }
+
+    private Compiler() {
+    }
+
+    public static Result compile(String fileName, String text) {
+        return compile(fileName, text, Options.DEFAULT);
+    }
+
+    public static Result compile(String fileName, String text, Options options) {
+        return compile(fileName, text.getBytes(StandardCharsets.UTF_8), options);
+    }
+
+    public static Result compile(String fileName, byte[] text) {
+        return compile(fileName, text, Options.DEFAULT);
+    }
+
+    public static Result compile(String fileName, byte[] text, Options options) {
+        return compile(fileName, ByteBuffer.wrap(text), options);
+    }
+
+    public static Result compile(String fileName, ByteBuffer text) {
+        return compile(fileName, text, Options.DEFAULT);
+    }
+
+    // the bytes of "text" from its position to its limit, which are
+    // read in place and must not change until the result is returned
+    public static Result compile(String fileName, ByteBuffer text, Options options) {
+        return check(new Parser(new Source(fileName, text.slice()), options));
+    }
+
+    public static Result compileFile(String fileName) {
+        return compileFile(fileName, Options.DEFAULT);
+    }
+
+    // the file "fileName"; one that cannot be opened is an error
+    // of the result, at row 0
+    public static Result compileFile(String fileName, Options options) {
+        return check(new Parser(fileName, options));
+    }
+
+    static Result check(Parser parser) {
+        List<Diagnostic> diagnostics;
+        try {
+            diagnostics = parser.check();
+        } catch (Exception e) {
+            // a bug in the compiler, which fails this compilation only
+            diagnostics = List.of(new Diagnostic(0, 0, STR."internal compiler error: \{e}"));
+        } finally {
+            // the events of this compilation, out of the trace buffer
+            parser.flushTrace();
+        }
+        if (!diagnostics.isEmpty() || parser.arena == null)
+            return new Result(parser.inputFileName, null, List.copyOf(diagnostics));
+        parser.arena.trim();
+        return new Result(parser.inputFileName, parser.arena, List.of());
+    }
+}
@@ -0,0 +1,12 @@
+package parser;
+
+// a syntax error found by the parser, at a 1-based row and column;
+// row 0 for an error of the whole file, e.g. one that cannot be opened
+public record Diagnostic(int row, int column, String message) {
+    // as the compiler prints it
+    public String format(String fileName) {
+        if (row == 0)
+            return STR."\{fileName}: error: \{message}";
+        return STR."\{fileName}:\{row}:\{column}: error: \{message}";
+    }
+}
@@ -0,0 +1,333 @@
+package parser;
+
+import lexer.Token;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// the generator of LLTable from a grammar such as MiniJava.grammar:
+// it computes the FIRST and FOLLOW sets of the non-terminals, fills
+// the LL(1) table with them, folds the chains of expansions before
+// each token into one action, and writes it out as Java source.
+// A grammar that is not LL(1) is reported, with each conflict, and
+// no table is written.
+//   java --enable-preview parser.LLGen <grammar> <LLTable.java>
+public class LLGen {
+    private static final Token.Kind[] kindValues = Token.Kind.values();
+    private static final int TERMINALS = kindValues.length;
+
+    // the non-terminals, numbered from TERMINALS on
+    private final List<String> nonTerminals = new ArrayList<>();
+    private final Map<String, Integer> numbers = new HashMap<>();
+    // the productions, as their left-hand side and right-hand side
+    private final List<Integer> lhs = new ArrayList<>();
+    private final List<int[]> rhs = new ArrayList<>();
+    private final List<String> errors = new ArrayList<>();
+
+    private boolean[] nullable;
+    private BitSet[] first;
+    private BitSet[] follow;
+    private short[] table;
+    // the folded table, and its actions
+    private short[] actions;
+    private final List<int[]> pushes = new ArrayList<>();
+    private final List<Boolean> matchesToken = new ArrayList<>();
+    private final List<String> shown = new ArrayList<>();
+
+    // /////////////////////////////////////////////
+    // reading the grammar.
+
+    private void read(String grammar) {
+        StringBuilder text = new StringBuilder();
+        for (String line : grammar.split("\n")) {
+            int comment = line.indexOf('#');
+            text.append((comment < 0) ? line : line.substring(0, comment)).append(' ');
+        }
+        String[] rules = text.toString().replace(":", " : ").replace("|", " | ").split(";");
+        // number the non-terminals first, so that rules may refer to later ones
+        for (String rule : rules) {
+            String[] words = rule.trim().split("\\s+");
+            if (words.length < 2 || !words[1].equals(":")) {
+                if (!rule.isBlank())
+                    errors.add(STR."not a rule: \{rule.trim()}");
+                continue;
+            }
+            if (numbers.containsKey(words[0]))
+                errors.add(STR."\{words[0]} is defined twice");
+            numbers.put(words[0], TERMINALS + nonTerminals.size());
+            nonTerminals.add(words[0]);
+        }
+        for (String rule : rules) {
+            String[] words = rule.trim().split("\\s+");
+            if (words.length < 2 || !words[1].equals(":"))
+                continue;
+            int left = numbers.get(words[0]);
+            List<Integer> symbols = new ArrayList<>();
+            for (int i = 2; i <= words.length; i++) {
+                if (i == words.length || words[i].equals("|")) {
+                    lhs.add(left);
+                    rhs.add(symbols.stream().mapToInt(Integer::intValue).toArray());
+                    symbols.clear();
+                } else {
+                    symbols.add(symbol(words[i]));
+                }
+            }
+        }
+    }
+
+    private int symbol(String name) {
+        Integer number = numbers.get(name);
+        if (number != null)
+            return number;
+        try {
+            return Token.Kind.valueOf(name).ordinal();
+        } catch (IllegalArgumentException e) {
+            errors.add(STR."\{name} is neither a non-terminal nor a Token.Kind");
+            return 0;
+        }
+    }
+
+    // /////////////////////////////////////////////
+    // the sets, each to a fixed point.
+
+    private void computeSets() {
+        int n = nonTerminals.size();
+        nullable = new boolean[n];
+        first = new BitSet[n];
+        follow = new BitSet[n];
+        for (int i = 0; i < n; i++) {
+            first[i] = new BitSet(TERMINALS);
+            follow[i] = new BitSet(TERMINALS);
+        }
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int p = 0; p < rhs.size(); p++) {
+                int a = lhs.get(p) - TERMINALS;
+                BitSet before = (BitSet) first[a].clone();
+                boolean empty = first(rhs.get(p), 0, first[a]);
+                if (empty && !nullable[a]) {
+                    nullable[a] = true;
+                    changed = true;
+                }
+                changed |= !first[a].equals(before);
+            }
+        }
+
+        changed = true;
+        while (changed) {
+            changed = false;
+            for (int p = 0; p < rhs.size(); p++) {
+                int a = lhs.get(p) - TERMINALS;
+                int[] symbols = rhs.get(p);
+                for (int i = 0; i < symbols.length; i++) {
+                    if (symbols[i] < TERMINALS)
+                        continue;
+                    BitSet set = follow[symbols[i] - TERMINALS];
+                    int before = set.cardinality();
+                    // FIRST of the rest, and FOLLOW of "a" if the rest may be empty
+                    if (first(symbols, i + 1, set))
+                        set.or(follow[a]);
+                    changed |= set.cardinality() != before;
+                }
+            }
+        }
+    }
+
+    // add FIRST(symbols[from..]) to "set"; whether they derive the empty string
+    private boolean first(int[] symbols, int from, BitSet set) {
+        for (int i = from; i < symbols.length; i++) {
+            int symbol = symbols[i];
+            if (symbol < TERMINALS) {
+                set.set(symbol);
+                return false;
+            }
+            set.or(first[symbol - TERMINALS]);
+            if (!nullable[symbol - TERMINALS])
+                return false;
+        }
+        return true;
+    }
+
+    // /////////////////////////////////////////////
+    // the table.
+
+    private void fillTable() {
+        table = new short[nonTerminals.size() * TERMINALS];
+        java.util.Arrays.fill(table, (short) -1);
+        for (int p = 0; p < rhs.size(); p++) {
+            int a = lhs.get(p) - TERMINALS;
+            BitSet predict = new BitSet(TERMINALS);
+            if (first(rhs.get(p), 0, predict))
+                predict.or(follow[a]);
+            for (int t = predict.nextSetBit(0); t >= 0; t = predict.nextSetBit(t + 1)) {
+                int entry = a * TERMINALS + t;
+                if (table[entry] >= 0)
+                    errors.add(STR."conflict in \{nonTerminals.get(a)} on \{kindValues[t]}: \{show(table[entry])} and \{show(p)}");
+                else
+                    table[entry] = (short) p;
+            }
+        }
+    }
+
+    // the action of each entry of the table: a non-terminal expanded
+    // before token t expands its leftmost non-terminal before t again,
+    // and so on down to t itself, so the whole chain is folded into one
+    // entry that pushes what is left of it and matches t. Only an empty
+    // expansion leaves the token to the symbols below it.
+    private void compose() {
+        Map<String, Integer> numbers = new HashMap<>();
+        actions = new short[table.length];
+        for (int entry = 0; entry < table.length; entry++) {
+            if (table[entry] < 0) {
+                actions[entry] = -1;
+                continue;
+            }
+            int t = entry % TERMINALS;
+            List<Integer> symbols = new ArrayList<>();
+            for (int symbol : rhs.get(table[entry]))
+                symbols.add(symbol);
+            while (!symbols.isEmpty() && symbols.getFirst() >= TERMINALS) {
+                int[] expansion = rhs.get(table[(symbols.removeFirst() - TERMINALS) * TERMINALS + t]);
+                for (int i = expansion.length - 1; i >= 0; i--)
+                    symbols.addFirst(expansion[i]);
+            }
+            boolean matches = !symbols.isEmpty();
+            if (matches)
+                symbols.removeFirst();
+            String key = STR."\{matches} \{symbols}";
+            Integer action = numbers.get(key);
+            if (action == null) {
+                action = pushes.size();
+                numbers.put(key, action);
+                pushes.add(symbols.reversed().stream().mapToInt(Integer::intValue).toArray());
+                matchesToken.add(matches);
+                StringBuilder shown = new StringBuilder(matches ? name(t) : "(empty)");
+                for (int symbol : symbols)
+                    shown.append(' ').append(name(symbol));
+                this.shown.add(shown.toString());
+            }
+            actions[entry] = (short) (int) action;
+        }
+    }
+
+    private String show(int p) {
+        StringBuilder s = new StringBuilder(nonTerminals.get(lhs.get(p) - TERMINALS)).append(" :");
+        for (int symbol : rhs.get(p))
+            s.append(' ').append(name(symbol));
+        return s.toString();
+    }
+
+    private String name(int symbol) {
+        return (symbol < TERMINALS) ? kindValues[symbol].name() : nonTerminals.get(symbol - TERMINALS);
+    }
+
+    // /////////////////////////////////////////////
+    // the output.
+
+    private String emit(String grammarName) {
+        StringBuilder s = new StringBuilder();
+        s.append(STR."""
+                package parser;
+
+                // generated by LLGen from \{grammarName}, do not edit.
+                // Symbols are numbered as in LLGen: the terminals by
+                // Token.Kind ordinal, then the non-terminals.
+                final class LLTable {
+                    // the Token.Kind names the table was made for
+                    static final String KINDS = "\{String.join(" ", java.util.Arrays.stream(kindValues).map(Enum::name).toList())}";
+
+                    static final String[] NON_TERMINALS = {
+                """);
+        for (String name : nonTerminals)
+            s.append(STR."            \"\{name}\",\n");
+        s.append(STR."""
+                    };
+
+                    static final int START = \{TERMINALS};
+
+                    // ACTIONS[(a - START) * \{TERMINALS} + t] is the action of non-terminal
+                    // a before token t, or -1 for an error
+                    static final short[] ACTIONS = {
+                """);
+        for (int a = 0; a < nonTerminals.size(); a++) {
+            s.append(STR."            // \{nonTerminals.get(a)}\n            ");
+            for (int t = 0; t < TERMINALS; t++)
+                s.append(actions[a * TERMINALS + t]).append((t + 1 < TERMINALS) ? ", " : ",\n");
+        }
+        s.append("""
+                    };
+
+                    // action k matches the token if MATCHES[k], and replaces the
+                    // non-terminal by PUSH[PUSH_START[k], PUSH_START[k + 1]),
+                    // reversed for the parse stack
+                    static final boolean[] MATCHES = {
+                """);
+        for (int k = 0; k < pushes.size(); k += 8)
+            s.append("            ")
+                    .append(String.join(", ", matchesToken.subList(k, Math.min(k + 8, pushes.size())).stream().map(String::valueOf).toList()))
+                    .append(",\n");
+        s.append("""
+                    };
+
+                    static final short[] PUSH = {
+                """);
+        List<Integer> starts = new ArrayList<>();
+        int at = 0;
+        for (int k = 0; k < pushes.size(); k++) {
+            starts.add(at);
+            int[] symbols = pushes.get(k);
+            s.append(STR."            // \{k}: \{shown.get(k)}\n");
+            if (symbols.length > 0) {
+                s.append("            ");
+                for (int i = 0; i < symbols.length; i++)
+                    s.append(symbols[i]).append(",").append((i + 1 < symbols.length) ? " " : "\n");
+            }
+            at += symbols.length;
+        }
+        starts.add(at);
+        s.append("""
+                    };
+
+                    static final int[] PUSH_START = {
+                """);
+        for (int i = 0; i < starts.size(); i += 16)
+            s.append("            ")
+                    .append(String.join(", ", starts.subList(i, Math.min(i + 16, starts.size())).stream().map(String::valueOf).toList()))
+                    .append(",\n");
+        s.append("""
+                    };
+                }
+                """);
+        return s.toString();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("usage: parser.LLGen <grammar> <LLTable.java>");
+            System.exit(1);
+        }
+        LLGen gen = new LLGen();
+        gen.read(Files.readString(Path.of(args[0])));
+        if (gen.errors.isEmpty()) {
+            gen.computeSets();
+            gen.fillTable();
+        }
+        if (gen.errors.isEmpty())
+            gen.compose();
+        if (!gen.errors.isEmpty()) {
+            for (String error : gen.errors)
+                System.err.println(STR."\{args[0]}: \{error}");
+            System.exit(1);
+        }
+        Files.writeString(Path.of(args[1]), gen.emit(Path.of(args[0]).getFileName().toString()));
+        System.out.println(STR."\{args[1]}: \{gen.nonTerminals.size()} non-terminals, \{gen.rhs.size()} productions, \{gen.pushes.size()} actions");
+    }
+}
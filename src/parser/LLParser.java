@@ -0,0 +1,95 @@
+package parser;
+
+import lexer.Source;
+import lexer.Token;
+import lexer.TokenCursor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// a table-driven LL(1) recognizer of MiniJava: in place of the
+// recursive descent of Parser, one loop pops grammar symbols off an
+// explicit stack, matching a terminal against the current token or
+// looking up the action of a non-terminal before it in LLTable, which
+// expands the non-terminal down to the token and matches it at once.
+// The table is generated from MiniJava.grammar by LLGen.
+// It checks the syntax only: it builds no tree and stops at the first
+// error, so Parser remains the front end of the compiler, and runs it
+// in its place with Options.llParser, "-parser ll".
+public class LLParser {
+    private static final Token.Kind[] kindValues = Token.Kind.values();
+    private static final int TERMINALS = kindValues.length;
+
+    static {
+        // the table numbers the terminals by Token.Kind ordinal
+        String kinds = String.join(" ", Arrays.stream(kindValues).map(Enum::name).toList());
+        if (!kinds.equals(LLTable.KINDS))
+            throw new IllegalStateException("LLTable is out of date with Token.Kind, run parser.LLGen");
+    }
+
+    private final Source source;
+    private final TokenCursor tokens;
+    // the symbols still to derive, the top last
+    private short[] stack = new short[256];
+
+    public LLParser(Source source, TokenCursor tokens) {
+        this.source = source;
+        this.tokens = tokens;
+    }
+
+    // null if the tokens are a program, or else the first syntax error
+    public Diagnostic recognize() {
+        final short[] actions = LLTable.ACTIONS;
+        final boolean[] matches = LLTable.MATCHES;
+        final short[] push = LLTable.PUSH;
+        final int[] pushStart = LLTable.PUSH_START;
+        short[] stack = this.stack;
+        int top = 0;
+        stack[top++] = LLTable.START;
+
+        tokens.advance();
+        int kind = tokens.kind().ordinal();
+        while (top > 0) {
+            int symbol = stack[--top];
+            if (symbol < TERMINALS) {
+                if (symbol != kind)
+                    return error(List.of(kindValues[symbol].name()));
+            } else {
+                int action = actions[(symbol - TERMINALS) * TERMINALS + kind];
+                if (action < 0)
+                    return error(expected(symbol));
+                int from = pushStart[action];
+                int n = pushStart[action + 1] - from;
+                if (top + n > stack.length)
+                    this.stack = stack = Arrays.copyOf(stack, 2 * (top + n));
+                System.arraycopy(push, from, stack, top, n);
+                top += n;
+                // an empty expansion: the token is for the symbols below
+                if (!matches[action])
+                    continue;
+            }
+            tokens.advance();
+            kind = tokens.kind().ordinal();
+        }
+        return null;
+    }
+
+    // the tokens that non-terminal "symbol" may begin with
+    private static List<String> expected(int symbol) {
+        List<String> names = new ArrayList<>();
+        int row = (symbol - TERMINALS) * TERMINALS;
+        for (int t = 0; t < TERMINALS; t++)
+            if (LLTable.ACTIONS[row + t] >= 0)
+                names.add(kindValues[t].name());
+        return names;
+    }
+
+    private Diagnostic error(List<String> expected) {
+        int start = tokens.start();
+        String what = (expected.size() == 1) ? expected.getFirst()
+                : STR."one of \{String.join(", ", expected)}";
+        return new Diagnostic(source.line(start), source.column(start),
+                STR."expects \{what}, but got \{tokens.kind()}");
+    }
+}
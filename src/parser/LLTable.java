@@ -0,0 +1,292 @@
+package parser;
+
+// generated by LLGen from MiniJava.grammar, do not edit.
+// Symbols are numbered as in LLGen: the terminals by
+// Token.Kind ordinal, then the non-terminals.
+final class LLTable {
+    // the Token.Kind names the table was made for
+    static final String KINDS = "ADD CLASS COMMA DOT EOF ID INT LBRACKET LENGTH LPAREN NEW RBRACKET RPAREN AND ASSIGN BOOLEAN ELSE EXTENDS FALSE IF LBRACE LT MAIN NOT NUM OUT PRINTLN PUBLIC RBRACE RETURN SEMI STATIC STRING SUB SYSTEM THIS TIMES TRUE VOID WHILE";
+
+    static final String[] NON_TERMINALS = {
+            "Program",
+            "MainClass",
+            "ClassDecls",
+            "ClassDecl",
+            "Extends",
+            "VarDecls",
+            "Type",
+            "IntRest",
+            "MethodDecls",
+            "MethodDecl",
+            "Formals",
+            "FormalRest",
+            "Body",
+            "IdRest",
+            "Statements",
+            "Statement",
+            "Assign",
+            "Exp",
+            "AndRest",
+            "LtExp",
+            "LtRest",
+            "AddExp",
+            "AddRest",
+            "TimesExp",
+            "TimesRest",
+            "NotExp",
+            "PostRest",
+            "Member",
+            "Args",
+            "ArgRest",
+            "AtomExp",
+            "New",
+    };
+
+    static final int START = 40;
+
+    // ACTIONS[(a - START) * 40 + t] is the action of non-terminal
+    // a before token t, or -1 for an error
+    static final short[] ACTIONS = {
+            // Program
+            -1, 0, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1,
+            // MainClass
+            -1, 1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1,
+            // ClassDecls
+            -1, 2, -1, -1, 3, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1,
+            // ClassDecl
+            -1, 4, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1,
+            // Extends
+            -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 5, -1, -1, 3, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1,
+            // VarDecls
+            -1, -1, -1, -1, -1, 6, 7, -1, -1, -1, -1, -1, -1, -1, -1, 6, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 3, 3, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1,
+            // Type
+            -1, -1, -1, -1, -1, 8, 9, -1, -1, -1, -1, -1, -1, -1, -1, 8, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1,
+            // IntRest
+            -1, -1, -1, -1, -1, 3, -1, 10, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1,
+            // MethodDecls
+            -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 11, 3, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1,
+            // MethodDecl
+            -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 12, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1,
+            // Formals
+            -1, -1, -1, -1, -1, 13, 14, -1, -1, -1, -1, -1, 3, -1, -1, 13, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1,
+            // FormalRest
+            -1, -1, 15, -1, -1, -1, -1, -1, -1, -1, -1, -1, 3, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1,
+            // Body
+            -1, -1, -1, -1, -1, 16, 17, -1, -1, -1, -1, -1, -1, -1, -1, 18, -1, -1, -1, 19, 20, -1, -1, -1, -1, -1, -1, -1, -1, 3, -1, -1, -1, -1, 21, -1, -1, -1, -1, 22,
+            // IdRest
+            -1, -1, -1, -1, -1, 23, -1, 24, -1, -1, -1, -1, -1, -1, 25, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1,
+            // Statements
+            -1, -1, -1, -1, -1, 26, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 19, 20, -1, -1, -1, -1, -1, -1, -1, 3, 3, -1, -1, -1, -1, 21, -1, -1, -1, -1, 22,
+            // Statement
+            -1, -1, -1, -1, -1, 27, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 28, 29, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 30, -1, -1, -1, -1, 31,
+            // Assign
+            -1, -1, -1, -1, -1, -1, -1, 32, -1, -1, -1, -1, -1, -1, 33, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1,
+            // Exp
+            -1, -1, -1, -1, -1, 34, -1, -1, -1, 35, 36, -1, -1, -1, -1, -1, -1, -1, 34, -1, -1, -1, -1, 37, 34, -1, -1, -1, -1, -1, -1, -1, -1, 38, -1, 34, -1, 34, -1, -1,
+            // AndRest
+            -1, -1, 3, -1, -1, -1, -1, -1, -1, -1, -1, 3, 3, 39, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 3, -1, -1, -1, -1, -1, -1, -1, -1, -1,
+            // LtExp
+            -1, -1, -1, -1, -1, 40, -1, -1, -1, 41, 42, -1, -1, -1, -1, -1, -1, -1, 40, -1, -1, -1, -1, 43, 40, -1, -1, -1, -1, -1, -1, -1, -1, 44, -1, 40, -1, 40, -1, -1,
+            // LtRest
+            -1, -1, 3, -1, -1, -1, -1, -1, -1, -1, -1, 3, 3, 3, -1, -1, -1, -1, -1, -1, -1, 45, -1, -1, -1, -1, -1, -1, -1, -1, 3, -1, -1, -1, -1, -1, -1, -1, -1, -1,
+            // AddExp
+            -1, -1, -1, -1, -1, 46, -1, -1, -1, 47, 48, -1, -1, -1, -1, -1, -1, -1, 46, -1, -1, -1, -1, 49, 46, -1, -1, -1, -1, -1, -1, -1, -1, 50, -1, 46, -1, 46, -1, -1,
+            // AddRest
+            51, -1, 3, -1, -1, -1, -1, -1, -1, -1, -1, 3, 3, 3, -1, -1, -1, -1, -1, -1, -1, 3, -1, -1, -1, -1, -1, -1, -1, -1, 3, -1, -1, 51, -1, -1, -1, -1, -1, -1,
+            // TimesExp
+            -1, -1, -1, -1, -1, 52, -1, -1, -1, 53, 54, -1, -1, -1, -1, -1, -1, -1, 52, -1, -1, -1, -1, 55, 52, -1, -1, -1, -1, -1, -1, -1, -1, 56, -1, 52, -1, 52, -1, -1,
+            // TimesRest
+            3, -1, 3, -1, -1, -1, -1, -1, -1, -1, -1, 3, 3, 3, -1, -1, -1, -1, -1, -1, -1, 3, -1, -1, -1, -1, -1, -1, -1, -1, 3, -1, -1, 3, -1, -1, 55, -1, -1, -1,
+            // NotExp
+            -1, -1, -1, -1, -1, 57, -1, -1, -1, 58, 59, -1, -1, -1, -1, -1, -1, -1, 57, -1, -1, -1, -1, 60, 57, -1, -1, -1, -1, -1, -1, -1, -1, 61, -1, 57, -1, 57, -1, -1,
+            // PostRest
+            3, -1, 3, 62, -1, -1, -1, 63, -1, -1, -1, 3, 3, 3, -1, -1, -1, -1, -1, -1, -1, 3, -1, -1, -1, -1, -1, -1, -1, -1, 3, -1, -1, 3, -1, -1, 3, -1, -1, -1,
+            // Member
+            -1, -1, -1, -1, -1, 64, -1, -1, 8, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1,
+            // Args
+            -1, -1, -1, -1, -1, 65, -1, -1, -1, 66, 67, -1, 3, -1, -1, -1, -1, -1, 65, -1, -1, -1, -1, 68, 65, -1, -1, -1, -1, -1, -1, -1, -1, 69, -1, 65, -1, 65, -1, -1,
+            // ArgRest
+            -1, -1, 70, -1, -1, -1, -1, -1, -1, -1, -1, -1, 3, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1,
+            // AtomExp
+            -1, -1, -1, -1, -1, 8, -1, -1, -1, 71, 72, -1, -1, -1, -1, -1, -1, -1, 8, -1, -1, -1, -1, -1, 8, -1, -1, -1, -1, -1, -1, -1, -1, 73, -1, 8, -1, 8, -1, -1,
+            // New
+            -1, -1, -1, -1, -1, 74, 75, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1,
+    };
+
+    // action k matches the token if MATCHES[k], and replaces the
+    // non-terminal by PUSH[PUSH_START[k], PUSH_START[k + 1]),
+    // reversed for the parse stack
+    static final boolean[] MATCHES = {
+            true, true, true, false, true, true, true, true,
+            true, true, true, true, true, true, true, true,
+            true, true, true, true, true, true, true, true,
+            true, true, true, true, true, true, true, true,
+            true, true, true, true, true, true, true, true,
+            true, true, true, true, true, true, true, true,
+            true, true, true, true, true, true, true, true,
+            true, true, true, true, true, true, true, true,
+            true, true, true, true, true, true, true, true,
+            true, true, true, true,
+    };
+
+    static final short[] PUSH = {
+            // 0: CLASS ID LBRACE PUBLIC STATIC VOID MAIN LPAREN STRING LBRACKET RBRACKET ID RPAREN LBRACE Statement RBRACE RBRACE ClassDecls EOF
+            4, 42, 28, 28, 55, 20, 12, 5, 11, 7, 32, 9, 22, 38, 31, 27, 20, 5,
+            // 1: CLASS ID LBRACE PUBLIC STATIC VOID MAIN LPAREN STRING LBRACKET RBRACKET ID RPAREN LBRACE Statement RBRACE RBRACE
+            28, 28, 55, 20, 12, 5, 11, 7, 32, 9, 22, 38, 31, 27, 20, 5,
+            // 2: CLASS ID Extends LBRACE VarDecls MethodDecls RBRACE ClassDecls
+            42, 28, 48, 45, 20, 44, 5,
+            // 3: (empty)
+            // 4: CLASS ID Extends LBRACE VarDecls MethodDecls RBRACE
+            28, 48, 45, 20, 44, 5,
+            // 5: EXTENDS ID
+            5,
+            // 6: ID ID SEMI VarDecls
+            45, 30, 5,
+            // 7: INT IntRest ID SEMI VarDecls
+            45, 30, 5, 47,
+            // 8: ID
+            // 9: INT IntRest
+            47,
+            // 10: LBRACKET RBRACKET
+            11,
+            // 11: PUBLIC Type ID LPAREN Formals RPAREN LBRACE Body RETURN Exp SEMI RBRACE MethodDecls
+            48, 28, 30, 57, 29, 52, 20, 12, 50, 9, 5, 46,
+            // 12: PUBLIC Type ID LPAREN Formals RPAREN LBRACE Body RETURN Exp SEMI RBRACE
+            28, 30, 57, 29, 52, 20, 12, 50, 9, 5, 46,
+            // 13: ID ID FormalRest
+            51, 5,
+            // 14: INT IntRest ID FormalRest
+            51, 5, 47,
+            // 15: COMMA Type ID FormalRest
+            51, 5, 46,
+            // 16: ID IdRest
+            53,
+            // 17: INT IntRest ID SEMI Body
+            52, 30, 5, 47,
+            // 18: BOOLEAN ID SEMI Body
+            52, 30, 5,
+            // 19: IF LPAREN Exp RPAREN Statement ELSE Statement Statements
+            54, 55, 16, 55, 12, 57, 9,
+            // 20: LBRACE Statements RBRACE Statements
+            54, 28, 54,
+            // 21: SYSTEM DOT OUT DOT PRINTLN LPAREN Exp RPAREN SEMI Statements
+            54, 30, 12, 57, 9, 26, 3, 25, 3,
+            // 22: WHILE LPAREN Exp RPAREN Statement Statements
+            54, 55, 12, 57, 9,
+            // 23: ID SEMI Body
+            52, 30,
+            // 24: LBRACKET Exp RBRACKET ASSIGN Exp SEMI Statements
+            54, 30, 57, 14, 11, 57,
+            // 25: ASSIGN Exp SEMI Statements
+            54, 30, 57,
+            // 26: ID Assign Statements
+            54, 56,
+            // 27: ID Assign
+            56,
+            // 28: IF LPAREN Exp RPAREN Statement ELSE Statement
+            55, 16, 55, 12, 57, 9,
+            // 29: LBRACE Statements RBRACE
+            28, 54,
+            // 30: SYSTEM DOT OUT DOT PRINTLN LPAREN Exp RPAREN SEMI
+            30, 12, 57, 9, 26, 3, 25, 3,
+            // 31: WHILE LPAREN Exp RPAREN Statement
+            55, 12, 57, 9,
+            // 32: LBRACKET Exp RBRACKET ASSIGN Exp SEMI
+            30, 57, 14, 11, 57,
+            // 33: ASSIGN Exp SEMI
+            30, 57,
+            // 34: ID PostRest TimesRest AddRest LtRest AndRest
+            58, 60, 62, 64, 66,
+            // 35: LPAREN Exp RPAREN PostRest TimesRest AddRest LtRest AndRest
+            58, 60, 62, 64, 66, 12, 57,
+            // 36: NEW New PostRest TimesRest AddRest LtRest AndRest
+            58, 60, 62, 64, 66, 71,
+            // 37: NOT NotExp TimesRest AddRest LtRest AndRest
+            58, 60, 62, 64, 65,
+            // 38: SUB NUM PostRest TimesRest AddRest LtRest AndRest
+            58, 60, 62, 64, 66, 24,
+            // 39: AND LtExp AndRest
+            58, 59,
+            // 40: ID PostRest TimesRest AddRest LtRest
+            60, 62, 64, 66,
+            // 41: LPAREN Exp RPAREN PostRest TimesRest AddRest LtRest
+            60, 62, 64, 66, 12, 57,
+            // 42: NEW New PostRest TimesRest AddRest LtRest
+            60, 62, 64, 66, 71,
+            // 43: NOT NotExp TimesRest AddRest LtRest
+            60, 62, 64, 65,
+            // 44: SUB NUM PostRest TimesRest AddRest LtRest
+            60, 62, 64, 66, 24,
+            // 45: LT AddExp LtRest
+            60, 61,
+            // 46: ID PostRest TimesRest AddRest
+            62, 64, 66,
+            // 47: LPAREN Exp RPAREN PostRest TimesRest AddRest
+            62, 64, 66, 12, 57,
+            // 48: NEW New PostRest TimesRest AddRest
+            62, 64, 66, 71,
+            // 49: NOT NotExp TimesRest AddRest
+            62, 64, 65,
+            // 50: SUB NUM PostRest TimesRest AddRest
+            62, 64, 66, 24,
+            // 51: ADD TimesExp AddRest
+            62, 63,
+            // 52: ID PostRest TimesRest
+            64, 66,
+            // 53: LPAREN Exp RPAREN PostRest TimesRest
+            64, 66, 12, 57,
+            // 54: NEW New PostRest TimesRest
+            64, 66, 71,
+            // 55: NOT NotExp TimesRest
+            64, 65,
+            // 56: SUB NUM PostRest TimesRest
+            64, 66, 24,
+            // 57: ID PostRest
+            66,
+            // 58: LPAREN Exp RPAREN PostRest
+            66, 12, 57,
+            // 59: NEW New PostRest
+            66, 71,
+            // 60: NOT NotExp
+            65,
+            // 61: SUB NUM PostRest
+            66, 24,
+            // 62: DOT Member PostRest
+            66, 67,
+            // 63: LBRACKET Exp RBRACKET PostRest
+            66, 11, 57,
+            // 64: ID LPAREN Args RPAREN
+            12, 68, 9,
+            // 65: ID PostRest TimesRest AddRest LtRest AndRest ArgRest
+            69, 58, 60, 62, 64, 66,
+            // 66: LPAREN Exp RPAREN PostRest TimesRest AddRest LtRest AndRest ArgRest
+            69, 58, 60, 62, 64, 66, 12, 57,
+            // 67: NEW New PostRest TimesRest AddRest LtRest AndRest ArgRest
+            69, 58, 60, 62, 64, 66, 71,
+            // 68: NOT NotExp TimesRest AddRest LtRest AndRest ArgRest
+            69, 58, 60, 62, 64, 65,
+            // 69: SUB NUM PostRest TimesRest AddRest LtRest AndRest ArgRest
+            69, 58, 60, 62, 64, 66, 24,
+            // 70: COMMA Exp ArgRest
+            69, 57,
+            // 71: LPAREN Exp RPAREN
+            12, 57,
+            // 72: NEW New
+            71,
+            // 73: SUB NUM
+            24,
+            // 74: ID LPAREN RPAREN
+            12, 9,
+            // 75: INT LBRACKET Exp RBRACKET
+            11, 57, 7,
+    };
+
+    static final int[] PUSH_START = {
+            0, 18, 34, 41, 41, 47, 48, 51, 55, 55, 56, 57, 69, 80, 82, 85,
+            88, 89, 93, 96, 103, 106, 115, 120, 122, 128, 131, 133, 134, 140, 142, 150,
+            154, 159, 161, 166, 173, 179, 184, 190, 192, 196, 202, 207, 211, 216, 218, 221,
+            226, 230, 233, 237, 239, 241, 245, 248, 250, 253, 254, 257, 259, 260, 262, 264,
+            267, 270, 276, 284, 291, 297, 304, 306, 308, 309, 310, 312, 315,
+    };
+}
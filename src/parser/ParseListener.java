@@ -0,0 +1,35 @@
+package parser;
+
+import ast.Arena;
+
+// the events of Parser.parse(ParseListener), in source order, for
+// consumers that need no syntax tree. Each gets nodes of the parser's
+// arena, which are valid during the call only: a declaration or a
+// statement is dropped once reported, so the arena holds a method
+// header and a single statement at a time.
+// Every enter event is matched by its exit event, even when a syntax
+// error cuts the class or method short.
+public interface ParseListener {
+    // "superName" is Arena.NONE without "extends", and for the main class
+    default void enterClass(Arena arena, int name, int superName) {
+    }
+
+    default void exitClass(Arena arena, int name) {
+    }
+
+    // "main" is a method of the main class too, named by its token
+    default void enterMethod(Arena arena, int name) {
+    }
+
+    // "exp" is the return expression, Arena.NONE for main or after an error
+    default void exitMethod(Arena arena, int name, int exp) {
+    }
+
+    // a FORMAL, or the VAR_DECL of a field or a local
+    default void declaration(Arena arena, int node) {
+    }
+
+    // a statement of a method body, along with the statements nested in it
+    default void statement(Arena arena, int node) {
+    }
+}
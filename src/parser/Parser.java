@@ -1,355 +1,763 @@
 package parser;
 
+import ast.Arena;
+import control.Options;
 import lexer.Lexer;
+import lexer.Lookahead;
+import lexer.Source;
 import lexer.Token;
+import lexer.TokenCursor;
+import lexer.TokenPipe;
+import lexer.TokenStream;
 import slp.Slp;
 import util.Todo;
 
 import javax.print.attribute.standard.PrinterLocation;
-import java.io.BufferedInputStream;
-import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import static java.lang.System.*;
 
 public class Parser {
     String inputFileName;
-    BufferedInputStream inputStream;
+    Source source;
     Lexer lexer;
-    Token current;
-    private boolean isSpecial = false;
-    private Token currentNext;
+    // the whole file is lexed up front, the parser walks it with a cursor.
+    // The grammar is LL(2): "id id ;" and "id = ..." differ in the second token.
+    private static final int LOOKAHEAD = 1;
+    Lookahead tokens;
+    // the stream under "tokens", for parsing classes in parallel;
+    // null when the tokens come from a lexer thread through "pipe"
+    TokenStream stream;
+    TokenPipe pipe;
+    // the table-driven recognizer that checks the syntax in place of
+    // this parser, with Options.llParser; null otherwise
+    LLParser recognizer;
+    // the pool to parse classes on, see parseClassDeclsParallel()
+    ForkJoinPool pool = ForkJoinPool.commonPool();
+    // whether this parser is a worker of parseClassDeclsParallel()
+    private boolean worker = false;
+    // the syntax errors found so far, in source order; after each one
+    // the parser recovers, see recover(), to find the others
+    final List<Diagnostic> diagnostics = new ArrayList<>();
+    // the start of the token of the last error
+    private int errorStart = -1;
+    // the number of braces open at the current token
+    private int depth = 0;
+    // the consumer of parse(ParseListener), which keeps no tree,
+    // and the names of its class and method entered last
+    ParseListener listener;
+    private int openClass = Arena.NONE;
+    private int openMethod = Arena.NONE;
+    Token.Kind current;
+    // the options of this compilation, with "-trace parser", tested
+    // at every trace point, in a field of its own
+    final Options options;
+    private final boolean trace;
+    // where the events traced and the tokens dumped in this compilation
+    // go, see Batch, and the trace over it, made as the parse starts
+    OutputStream output = System.out;
+    private Trace tracer;
+    // the syntax tree under construction, every parseXxx method
+    // returns the node it made
+    Arena arena;
 
     public Parser(String fileName) {
+        this(fileName, Options.DEFAULT);
+    }
+
+    public Parser(String fileName, Options options) {
         this.inputFileName = fileName;
+        this.options = options;
+        this.trace = options.trace();
+    }
+
+    // a parser of "source", which is in memory rather than in a file
+    Parser(Source source, Options options) {
+        this(source.fileName, options);
+        this.source = source;
+    }
+
+    // a parser of the tokens of "source" from "cursor", e.g.
+    // of a region, see Reparser
+    Parser(Source source, TokenCursor cursor) {
+        this(source.fileName, Options.DEFAULT);
+        this.source = source;
+        this.tokens = new Lookahead(cursor, source, LOOKAHEAD);
+        this.arena = new Arena(source);
+        advance();
     }
 
     // /////////////////////////////////////////////
     // utility methods to connect the lexer and the parser.
     private void advance() {
-        current = lexer.nextToken();
+        if (current == Token.Kind.LBRACE)
+            depth++;
+        else if (current == Token.Kind.RBRACE)
+            depth--;
+        tokens.advance();
+        current = tokens.kind();
     }
 
     private void eatToken(Token.Kind kind) {
-        if (kind.equals(current.kind)) {
+        if (kind.equals(current)) {
             advance();
             return;
         }
-        System.out.println(STR."Expects: \{kind}");
-        System.out.println(STR."But got: \{current.kind} at row \{current.rowNum}, line \{current.colNum}");
-        error("syntax error");
+        syntaxError(STR."expects \{kind}, but got \{current}");
     }
 
-    private void error(String errMsg) {
-        System.out.println(STR."Error: \{errMsg}, compilation aborting...\n");
-        exit(1);
+    // make a leaf of the current token, and consume it
+    private int leaf(Arena.Kind kind) {
+        int node = arena.leaf(kind, tokens.start(), tokens.length());
+        advance();
+        return node;
     }
-    private void printID(String msg) {
-        System.out.println(STR."\{msg}\n");
+
+    // eatToken(ID), making a NAME node of it
+    private int eatName() {
+        int start = tokens.start();
+        int length = tokens.length();
+        eatToken(Token.Kind.ID);
+        return arena.leaf(Arena.Kind.NAME, start, length);
     }
 
-    // ////////////////////////////////////////////////////////////
-    // The followings are methods for parsing.
+    // unwinds the parse from a syntax error to the nearest recovery
+    private static final class SyntaxError extends RuntimeException {
+        private static final long serialVersionUID = 1L;
 
-    // A bunch of parsing methods to parse expressions.
-    // The messy parts are to deal with precedence and associativity.
+        static final SyntaxError INSTANCE = new SyntaxError();
 
-    // ExpList -> Exp ExpRest*
-    // ->
-    // ExpRest -> , Exp
-    // Exp, Exp, ...
-    private void parseExpList() {
-        if (current.kind.equals(Token.Kind.RPAREN))
-            // Exp )
-            return;
-        parseExp();
-        while (current.kind.equals(Token.Kind.COMMA)) {
-            advance();
-            parseExp();
+        private SyntaxError() {
+            super(null, null, false, false);
         }
-        return;
     }
 
-    // AtomExp -> (exp)
-    // -> INTEGER_LITERAL = NUM
-    // -> true
-    // -> false
-    // -> this
-    // -> id
-    // -> new int [exp]
-    // -> new id ()
-    // 只有 new，(exp)两种情况要讨论，其他全部直接返回
-    private void parseAtomExp() {
-        switch (current.kind) {
-            case LPAREN:
-                advance();
-                parseExp();
-                eatToken(Token.Kind.RPAREN);
-                printID(STR."========  parseAtomExp after eatToken), current -> \{current.kind} =========");
-                return;
-            case ID:
-                advance();
-                return;
-            case THIS:
-                advance();
-                return;
-            case TRUE:
-                advance();
-                return;
-            case FALSE:
-                advance();
-                return;
-            case NUM:
-                advance();
-                return;
-            case SUB:
-                advance();
-                if (current.kind == Token.Kind.NUM) {
-                    advance();
-                    return;
-                } else {
-                    error(STR."Error: got \{current.kind}");
-                }
-                return;
-            case NEW:
-                advance();
-                switch (current.kind) {
-                    case INT:
-                        advance();
-                        eatToken(Token.Kind.LBRACKET);
-                        parseExp();
-                        eatToken(Token.Kind.RBRACKET);
-                        return;
-                    case ID:
-                        advance();
-                        eatToken(Token.Kind.LPAREN);
-                        eatToken(Token.Kind.RPAREN);
-                        return;
-                    default:
-                        // throw new Todo();
-                        error("in parseAtomExp");
-                }
-            default:
-                error("parseAtomExp failed");
-                return;
+    // report a syntax error at the current token, and unwind
+    private void syntaxError(String message) {
+        report(message);
+        trace("error", message);
+        throw SyntaxError.INSTANCE;
+    }
+
+    // report a syntax error at the current token, and go on
+    private void report(String message) {
+        int start = tokens.start();
+        // the errors of one token, as each enclosing construct
+        // fails in turn, are reported once
+        if (start != errorStart) {
+            errorStart = start;
+            diagnostics.add(new Diagnostic(source.line(start), source.column(start), message));
         }
     }
 
-    // NotExp -> AtomExp
-    // -> AtomExp .id (expList)
-    // -> AtomExp [exp]
-    // -> AtomExp .length
-    // 可以被取“非”的表达式
-    private void parseNotExp() {
-        parseAtomExp();
-        if (current.kind == Token.Kind.DOT ||
-                current.kind == Token.Kind.LBRACKET) {
-            if (current.kind == Token.Kind.DOT) {
-                advance();
-                if (current.kind == Token.Kind.LENGTH) {
-                    // .length
+    // make a leaf of the current NUM token, and consume it.
+    // It must fit an int, which, after a "-", may be one larger.
+    private int eatNum(boolean negative) {
+        int start = tokens.start();
+        int length = tokens.length();
+        if (length > 1 && source.byteAt(start) == '0')
+            report("a number must not start with 0");
+        String max = negative ? "2147483648" : "2147483647";
+        if (length > max.length()
+                || (length == max.length() && source.text(start, length).compareTo(max) > 0))
+            report(STR."the number \{negative ? "-" : ""}\{source.text(start, length)} is too large for an int");
+        return leaf(Arena.Kind.NUM);
+    }
+
+    // panic-mode recovery, by the loops over statements, declarations
+    // and classes: drop the construct that failed, pushed since
+    // "mark" and made from node "size" on, and skip to a token that
+    // synchronizes the loop, at its brace "depth": after a ";", before
+    // a "}", after the "}" of a block skipped whole, e.g. a method
+    // body, or before "class"
+    private void recover(int mark, int size, int depth) {
+        arena.pop(mark);
+        arena.truncate(size);
+        opTop = 0;
+        operandTop = 0;
+        while (current != Token.Kind.CLASS && current != Token.Kind.EOF) {
+            if (this.depth == depth) {
+                if (current == Token.Kind.SEMI) {
                     advance();
                     return;
                 }
-                // .id(expList)
-                eatToken(Token.Kind.ID);
-                eatToken(Token.Kind.LPAREN);
-                parseExpList();
-                eatToken(Token.Kind.RPAREN);
-                return;
-            } else {
-                // [exp]
-                eatToken(Token.Kind.LBRACKET);
-                parseExp();
-                eatToken(Token.Kind.RBRACKET);
-                return;
+                if (current == Token.Kind.RBRACE)
+                    return;
             }
+            boolean closes = current == Token.Kind.RBRACE && this.depth == depth + 1;
+            advance();
+            if (closes)
+                return;
         }
-        printID(STR."======== parseNotExp return, current -> \{current.kind} =========");
-        return;
+        // "class" only starts a class declaration
+        if (current == Token.Kind.CLASS)
+            this.depth = 0;
     }
 
-    // TimesExp -> ! TimesExp
-    // -> NotExp
-    private void parseTimesExp() {
-        // throw new Todo();
-        if (current.kind != Token.Kind.NOT){
-            parseNotExp();
+    private void error(String errMsg) {
+        flushTrace();
+        System.out.println(STR."Error: \{errMsg}, compilation aborting...\n");
+        exit(1);
+    }
+
+    // a parse event, see Trace
+    private void trace(String event, String rule) {
+        if (trace)
+            tracer.event(event, rule, current, tokens.line());
+    }
+
+    // the events traced so far, out of the trace buffer
+    void flushTrace() {
+        if (tracer != null)
+            tracer.flush();
+    }
+
+    // /////////////////////////////////////////////
+    // events of a listener, see parse(ParseListener).
+
+    // a finished declaration, statement, method or class, made from
+    // node "size" on: pushed for the node enclosing it, or reported
+    // to the listener and dropped
+    private void emit(int node, int size) {
+        if (listener == null) {
+            arena.push(node);
             return;
         }
-        while (current.kind == Token.Kind.NOT) {
-            advance();  // -> (
-            parseTimesExp();
+        switch (arena.kind(node)) {
+            case FORMAL, VAR_DECL -> listener.declaration(arena, node);
+            case CLASS, MAIN_CLASS, METHOD -> {
+                // reported by enterXxx and exitXxx
+            }
+            default -> listener.statement(arena, node);
         }
-        return;
+        arena.truncate(size);
     }
 
-    // AddSubExp -> TimesExp * TimesExp
-    // -> TimesExp
-    private void parseAddSubExp() {
-        parseTimesExp();
-        // throw new Todo();
-        if (current.kind == Token.Kind.TIMES) {
-            advance();
-            parseTimesExp();
-            printID(STR."======== parseAddSubExp return, current -> \{current.kind} =========");
+    private void enterClass(int name, int superName) {
+        if (listener == null)
             return;
-        }
-        printID(STR."======== parseAddSubExp return, current -> \{current.kind} =========");
-        return;
+        openClass = name;
+        listener.enterClass(arena, name, superName);
     }
 
-    // LtExp -> AddSubExp + AddSubExp
-    // -> AddSubExp - AddSubExp
-    // -> AddSubExp
-    private void parseLtExp() {
-        parseAddSubExp();
-        // throw new Todo();
-        if (current.kind == Token.Kind.ADD
-                || current.kind == Token.Kind.SUB) {
-            advance();
-            parseAddSubExp();
+    // the method open in the class exits first, if an error cut it short
+    private void exitClass() {
+        exitMethod(Arena.NONE);
+        if (openClass == Arena.NONE)
             return;
+        listener.exitClass(arena, openClass);
+        openClass = Arena.NONE;
+    }
+
+    private void enterMethod(int name) {
+        if (listener == null)
+            return;
+        openMethod = name;
+        listener.enterMethod(arena, name);
+    }
+
+    private void exitMethod(int exp) {
+        if (openMethod == Arena.NONE)
+            return;
+        listener.exitMethod(arena, openMethod, exp);
+        openMethod = Arena.NONE;
+    }
+
+    // ////////////////////////////////////////////////////////////
+    // The followings are methods for parsing.
+
+    // Expressions are parsed by precedence climbing over explicit
+    // stacks, instead of one method per precedence level, so that
+    // long operator chains and deep nesting cost no Java stack.
+    //
+    // Exp -> Exp op Exp
+    // -> ! Exp
+    // -> Exp . length
+    // -> Exp . id ( ExpList )
+    // -> Exp [ Exp ]
+    // -> ( Exp )
+    // -> AtomExp
+    // 优先级从低到高：&&, <, + -, *, !, 后缀 (. 和 [)，二元运算都是左结合
+
+    // pending operators. The open brackets are markers, of
+    // precedence 0, which only their closing token reduces.
+    private static final int OP_PAREN = 0;      // (
+    private static final int OP_INDEX = 1;      // e [
+    private static final int OP_NEW_ARRAY = 2;  // new int [
+    private static final int OP_CALL = 3;       // e . id (
+    private static final int OP_NOT = 4;
+    private static final int OP_AND = 5;
+    private static final int OP_LT = 6;
+    private static final int OP_ADD = 7;
+    private static final int OP_SUB = 8;
+    private static final int OP_TIMES = 9;
+    private static final int[] precedence = {0, 0, 0, 0, 5, 1, 2, 3, 3, 4};
+    // the node each operator makes
+    private static final Arena.Kind[] opNodes = {
+            null, Arena.Kind.ARRAY_SELECT, Arena.Kind.NEW_INT_ARRAY, Arena.Kind.CALL,
+            Arena.Kind.NOT, Arena.Kind.AND, Arena.Kind.LT, Arena.Kind.ADD, Arena.Kind.SUB, Arena.Kind.TIMES,
+    };
+    // the token that closes each marker
+    private static final Token.Kind[] closers = {
+            Token.Kind.RPAREN, Token.Kind.RBRACKET, Token.Kind.RBRACKET, Token.Kind.RPAREN,
+    };
+
+    // the operator stack: the operator, its token, and for a call,
+    // the method name and the operand index of the object
+    private int[] opCodes = new int[64];
+    private int[] opStarts = new int[64];
+    private int[] opLengths = new int[64];
+    private int[] opNames = new int[64];
+    private int[] opObjects = new int[64];
+    private int opTop = 0;
+    // the operand stack, of nodes
+    private int[] operands = new int[64];
+    private int operandTop = 0;
+
+    private void pushOp(int code, int start, int length, int name, int object) {
+        if (opTop == opCodes.length) {
+            int capacity = opTop * 2;
+            opCodes = Arrays.copyOf(opCodes, capacity);
+            opStarts = Arrays.copyOf(opStarts, capacity);
+            opLengths = Arrays.copyOf(opLengths, capacity);
+            opNames = Arrays.copyOf(opNames, capacity);
+            opObjects = Arrays.copyOf(opObjects, capacity);
         }
-        printID(STR."======== parseLtExp return, current -> \{current.kind} =========");
+        opCodes[opTop] = code;
+        opStarts[opTop] = start;
+        opLengths[opTop] = length;
+        opNames[opTop] = name;
+        opObjects[opTop] = object;
+        opTop++;
+    }
 
-        return;
+    // push an operator whose token is the current one, and consume it
+    private void pushOp(int code) {
+        pushOp(code, tokens.start(), tokens.length(), Arena.NONE, Arena.NONE);
+        advance();
     }
 
-    // AndExp -> LtExp < LtExp
-    // -> LtExp
-    private void parseAndExp() {
-        parseLtExp();
-        // throw new Todo();
-        if (current.kind == Token.Kind.LT) {
-            advance();
-            parseLtExp();
-            printID(STR."======== parseAndExp return, current -> \{current.kind} =========");
+    private void pushOperand(int node) {
+        if (operandTop == operands.length)
+            operands = Arrays.copyOf(operands, operandTop * 2);
+        operands[operandTop++] = node;
+    }
 
-            return;
+    // the operator of a binary operator token, -1 for other tokens
+    private static int binaryOp(Token.Kind kind) {
+        return switch (kind) {
+            case AND -> OP_AND;
+            case LT -> OP_LT;
+            case ADD -> OP_ADD;
+            case SUB -> OP_SUB;
+            case TIMES -> OP_TIMES;
+            default -> -1;
+        };
+    }
+
+    // apply the prefix or binary operator on top of the stack
+    private void reduce() {
+        int i = --opTop;
+        Arena.Kind kind = opNodes[opCodes[i]];
+        if (opCodes[i] == OP_NOT) {
+            int exp = operands[--operandTop];
+            pushOperand(arena.node(kind, opStarts[i], opLengths[i], exp));
+        } else {
+            int right = operands[--operandTop];
+            int left = operands[--operandTop];
+            pushOperand(arena.node(kind, opStarts[i], opLengths[i], left, right));
         }
-        return;
     }
 
-    // Exp -> AndExp && AndExp
-    // -> AndExp
-    private void parseExp() {
-        parseAndExp();
-        // throw new Todo();
-        if (current.kind == Token.Kind.AND) {
-            advance();
-            parseAndExp();
+    // apply operators down to the nearest marker above "base"
+    private void reduceToMarker(int base) {
+        while (opTop > base && precedence[opCodes[opTop - 1]] > 0)
+            reduce();
+    }
+
+    // close the marker on top of the stack with the current token
+    private void closeMarker() {
+        int i = opTop - 1;
+        int code = opCodes[i];
+        eatToken(closers[code]);
+        opTop--;
+        switch (code) {
+            case OP_PAREN -> {
+                // ( exp ) is just exp
+            }
+            case OP_INDEX -> {
+                int index = operands[--operandTop];
+                int array = operands[--operandTop];
+                pushOperand(arena.node(Arena.Kind.ARRAY_SELECT, opStarts[i], opLengths[i], array, index));
+            }
+            case OP_NEW_ARRAY -> {
+                int size = operands[--operandTop];
+                pushOperand(arena.node(Arena.Kind.NEW_INT_ARRAY, opStarts[i], opLengths[i], size));
+            }
+            default -> {
+                // the object and the arguments are on top of the operand stack
+                int object = opObjects[i];
+                int mark = arena.mark();
+                arena.push(operands[object]);
+                arena.push(opNames[i]);
+                for (int k = object + 1; k < operandTop; k++)
+                    arena.push(operands[k]);
+                operandTop = object;
+                pushOperand(arena.make(Arena.Kind.CALL, opStarts[i], opLengths[i], mark));
+            }
+        }
+    }
+
+    private int parseExp() {
+        int opBase = opTop;
+        operand:
+        while (true) {
+            // prefix operators and open parentheses before an operand
+            while (current == Token.Kind.NOT || current == Token.Kind.LPAREN)
+                pushOp((current == Token.Kind.NOT) ? OP_NOT : OP_PAREN);
+            if (current == Token.Kind.NEW && tokens.peek(1) == Token.Kind.INT) {
+                // new int [ Exp ]
+                pushOp(OP_NEW_ARRAY);
+                advance();
+                eatToken(Token.Kind.LBRACKET);
+                continue;
+            }
+            pushOperand(parseAtomExp());
+
+            // postfix operators and closing brackets after an operand,
+            // then a binary operator or the end of the expression
+            while (true) {
+                switch (current) {
+                    case DOT -> {
+                        advance();
+                        if (current == Token.Kind.LENGTH) {
+                            // .length
+                            int array = operands[--operandTop];
+                            pushOperand(arena.node(Arena.Kind.LENGTH, tokens.start(), tokens.length(), array));
+                            advance();
+                            continue;
+                        }
+                        // .id(expList)
+                        int name = eatName();
+                        pushOp(OP_CALL, arena.start(name), arena.length(name), name, operandTop - 1);
+                        eatToken(Token.Kind.LPAREN);
+                        if (current == Token.Kind.RPAREN) {
+                            closeMarker();
+                            continue;
+                        }
+                        continue operand;
+                    }
+                    case LBRACKET -> {
+                        // [exp]
+                        pushOp(OP_INDEX);
+                        continue operand;
+                    }
+                    case RPAREN, RBRACKET, COMMA -> {
+                        reduceToMarker(opBase);
+                        if (opTop == opBase)
+                            // the caller's token, e.g. the ) of "if ( Exp )"
+                            break operand;
+                        if (current == Token.Kind.COMMA && opCodes[opTop - 1] == OP_CALL) {
+                            // the next argument
+                            advance();
+                            continue operand;
+                        }
+                        closeMarker();
+                    }
+                    default -> {
+                        int op = binaryOp(current);
+                        if (op < 0)
+                            break operand;
+                        while (opTop > opBase && precedence[opCodes[opTop - 1]] >= precedence[op])
+                            reduce();
+                        pushOp(op);
+                        continue operand;
+                    }
+                }
+            }
+        }
+        reduceToMarker(opBase);
+        if (opTop > opBase)
+            // an unclosed bracket
+            eatToken(closers[opCodes[opTop - 1]]);
+        trace("exit", "Exp");
+        return operands[--operandTop];
+    }
+
+    // AtomExp -> INTEGER_LITERAL = NUM
+    // -> - INTEGER_LITERAL
+    // -> true
+    // -> false
+    // -> this
+    // -> id
+    // -> new id ()
+    // ( Exp ) 和 new int [ Exp ] 由 parseExp 处理
+    private int parseAtomExp() {
+        switch (current) {
+            case ID:
+                return leaf(Arena.Kind.ID);
+            case THIS:
+                return leaf(Arena.Kind.THIS);
+            case TRUE:
+                return leaf(Arena.Kind.TRUE);
+            case FALSE:
+                return leaf(Arena.Kind.FALSE);
+            case NUM:
+                return eatNum(false);
+            case SUB: {
+                int start = tokens.start();
+                advance();
+                if (current == Token.Kind.NUM) {
+                    return arena.node(Arena.Kind.NEG, start, 1, eatNum(true));
+                } else {
+                    syntaxError(STR."expects NUM, but got \{current}");
+                }
+                return Arena.NONE;
+            }
+            case NEW: {
+                advance();
+                if (current == Token.Kind.ID) {
+                    int object = leaf(Arena.Kind.NEW_OBJECT);
+                    eatToken(Token.Kind.LPAREN);
+                    eatToken(Token.Kind.RPAREN);
+                    return object;
+                }
+                // throw new Todo();
+                syntaxError(STR."expects ID, but got \{current}");
+            }
+            default:
+                syntaxError(STR."expects an expression, but got \{current}");
+                return Arena.NONE;
         }
     }
 
+    // Statements are parsed over an explicit stack of the blocks, ifs
+    // and whiles open around the current token, as expressions are, so
+    // that deeply nested statements cost no Java stack either.
+    //
     // Statement -> { Statement* }
     // -> if ( Exp ) Statement else Statement
     // -> while ( Exp ) Statement
     // -> System.out.println ( Exp ) ;
     // -> id = Exp ;
     // -> id [ Exp ]= Exp ;
-    private void parseStatement() {
+
+    // open statements: a block, an if before its "else", an if after
+    // it, and a while
+    private static final int STM_BLOCK = 0;
+    private static final int STM_THEN = 1;
+    private static final int STM_ELSE = 2;
+    private static final int STM_WHILE = 3;
+
+    // the statement stack: the statement, its token, its first and
+    // second children, the condition and the then part, or, for a
+    // block, the mark of its statements and the brace depth inside
+    // it; and, for a block, the mark and the node size at which its
+    // current statement started, for recover()
+    private int[] stmKinds = new int[16];
+    private int[] stmStarts = new int[16];
+    private int[] stmLengths = new int[16];
+    private int[] stmFirsts = new int[16];
+    private int[] stmSeconds = new int[16];
+    private int[] stmMarks = new int[16];
+    private int[] stmSizes = new int[16];
+    private int stmTop = 0;
+
+    private void pushStm(int kind, int start, int length, int first, int second) {
+        if (stmTop == stmKinds.length) {
+            int capacity = stmTop * 2;
+            stmKinds = Arrays.copyOf(stmKinds, capacity);
+            stmStarts = Arrays.copyOf(stmStarts, capacity);
+            stmLengths = Arrays.copyOf(stmLengths, capacity);
+            stmFirsts = Arrays.copyOf(stmFirsts, capacity);
+            stmSeconds = Arrays.copyOf(stmSeconds, capacity);
+            stmMarks = Arrays.copyOf(stmMarks, capacity);
+            stmSizes = Arrays.copyOf(stmSizes, capacity);
+        }
+        stmKinds[stmTop] = kind;
+        stmStarts[stmTop] = start;
+        stmLengths[stmTop] = length;
+        stmFirsts[stmTop] = first;
+        stmSeconds[stmTop] = second;
+        stmTop++;
+    }
+
+    private static boolean startsStatement(Token.Kind kind) {
+        return kind == Token.Kind.LBRACE
+                || kind == Token.Kind.IF
+                || kind == Token.Kind.WHILE
+                || kind == Token.Kind.SYSTEM
+                || kind == Token.Kind.ID;
+    }
+
+    private int parseStatement() {
         // to parse a statement.
         // throw new Todo();
-        switch (current.kind) {
-            case LBRACE:
-                advance();
-                parseStatements();
-                eatToken(Token.Kind.RBRACE);
-                return;
-            case IF:
-                advance();
-                eatToken(Token.Kind.LPAREN);
-                // 问题就是这个 parseExp
-                // current -> !
-                parseExp();
-                eatToken(Token.Kind.RPAREN);
-                parseStatement();
-                eatToken(Token.Kind.ELSE);
-                parseStatement();
-                return;
-            case WHILE:
-                advance();
-                eatToken(Token.Kind.LPAREN);
-                parseExp();
-                eatToken(Token.Kind.RPAREN);
-                parseStatement();
-                return;
-            case SYSTEM:
+        int base = stmTop;
+        boolean resume = false;
+        while (true) {
+            try {
+                return parseStatement(base, resume);
+            } catch (SyntaxError e) {
+                // the innermost block recovers, and goes on with its
+                // next statement; if none is open, the caller does
+                int block = stmTop - 1;
+                while (block >= base && stmKinds[block] != STM_BLOCK)
+                    block--;
+                if (block < base) {
+                    stmTop = base;
+                    throw e;
+                }
+                stmTop = block + 1;
+                recover(stmMarks[block], stmSizes[block], stmSeconds[block]);
+                resume = true;
+            }
+        }
+    }
+
+    // the statement from the current token on, over the statement
+    // stack above "base"; or, if "resume", the rest of the block on
+    // top of the stack
+    private int parseStatement(int base, boolean resume) {
+        int node = Arena.NONE;
+        boolean open = !resume;
+        while (true) {
+            if (open) {
+                int start = tokens.start();
+                int length = tokens.length();
+                switch (current) {
+                    case LBRACE: {
+                        advance();
+                        pushStm(STM_BLOCK, start, length, arena.mark(), depth);
+                        node = Arena.NONE;
+                        open = false;
+                        break;
+                    }
+                    case IF: {
+                        advance();
+                        eatToken(Token.Kind.LPAREN);
+                        // 问题就是这个 parseExp
+                        // current -> !
+                        int cond = parseExp();
+                        eatToken(Token.Kind.RPAREN);
+                        pushStm(STM_THEN, start, length, cond, Arena.NONE);
+                        continue;
+                    }
+                    case WHILE: {
+                        advance();
+                        eatToken(Token.Kind.LPAREN);
+                        int cond = parseExp();
+                        eatToken(Token.Kind.RPAREN);
+                        pushStm(STM_WHILE, start, length, cond, Arena.NONE);
+                        continue;
+                    }
+                    default:
+                        node = parseSimpleStatement(start, length);
+                        open = false;
+                }
+            }
+
+            // "node" is done, and goes to the statement open around it
+            if (stmTop == base)
+                return node;
+            int top = stmTop - 1;
+            switch (stmKinds[top]) {
+                case STM_THEN -> {
+                    eatToken(Token.Kind.ELSE);
+                    stmKinds[top] = STM_ELSE;
+                    stmSeconds[top] = node;
+                    open = true;
+                }
+                case STM_ELSE -> {
+                    stmTop--;
+                    node = arena.node(Arena.Kind.IF, stmStarts[top], stmLengths[top], stmFirsts[top], stmSeconds[top], node);
+                }
+                case STM_WHILE -> {
+                    stmTop--;
+                    node = arena.node(Arena.Kind.WHILE, stmStarts[top], stmLengths[top], stmFirsts[top], node);
+                }
+                default -> {
+                    // a block: "node" is its last statement, if any
+                    if (node != Arena.NONE)
+                        arena.push(node);
+                    if (startsStatement(current)) {
+                        stmMarks[top] = arena.mark();
+                        stmSizes[top] = arena.size();
+                        open = true;
+                    } else {
+                        // an error here goes to the enclosing block
+                        stmTop--;
+                        eatToken(Token.Kind.RBRACE);
+                        node = arena.make(Arena.Kind.BLOCK, stmStarts[top], stmLengths[top], stmFirsts[top]);
+                    }
+                }
+            }
+        }
+    }
+
+    // the statements that nest no other statement
+    private int parseSimpleStatement(int start, int length) {
+        switch (current) {
+            case SYSTEM: {
                 advance();
                 eatToken(Token.Kind.DOT);
                 eatToken(Token.Kind.OUT);
                 eatToken(Token.Kind.DOT);
                 eatToken(Token.Kind.PRINTLN);
                 eatToken(Token.Kind.LPAREN);
-                parseExp();
+                int exp = parseExp();
                 eatToken(Token.Kind.RPAREN);
                 eatToken(Token.Kind.SEMI);
-                return;
-            case ID:
-                if (isSpecial) {
-                    // printID("========= special =============");
-                    // 这是混进变量声明中的表达式statement走的支线，此时 current.kind = id，
-                    // 但是nextToken 得到的是 = 或者 [ 后的那个 token
-                    // currentNext 记录了 id 后面的 token是 = 还是 [
-                    current = currentNext;
-                    // 浅拷贝和深拷贝导致的
-                    printID("+++++++++++++++++next: "+ currentNext.toString());
-                    printID("+++++++++++++++++current: "+ current.toString());
-                    switch (current.kind){
-                        case ASSIGN:
-                            advance();
-                            parseExp();
-                            // 处理完把标志位恢复
-                            eatToken(Token.Kind.SEMI);
-                            isSpecial = false;
-                            return;
-                        case LBRACKET:
-                            advance();
-                            parseExp();
-                            eatToken(Token.Kind.RBRACKET);
-                            eatToken(Token.Kind.ASSIGN);
-                            parseExp();
-                            isSpecial = false;
-                            return;
-                    }
-
+                return arena.node(Arena.Kind.PRINT, start, length, exp);
+            }
+            case ID: {
+                int name = leaf(Arena.Kind.NAME);
+                if (current == Token.Kind.ASSIGN) {
+                    // id = exp ;
+                    advance();
+                    int exp = parseExp();
+                    eatToken(Token.Kind.SEMI);
+                    return arena.node(Arena.Kind.ASSIGN, start, length, name, exp);
                 }
-                else {
+                else if (current == Token.Kind.LBRACKET) {
+                    // id [Exp] = Exp ;
                     advance();
-                    if (current.kind == Token.Kind.ASSIGN) {
-                        // id = exp ;
-                        advance();
-                        parseExp();
-                        eatToken(Token.Kind.SEMI);
-                        return;
-                    }
-                    else if (current.kind == Token.Kind.LBRACKET) {
-                        // id [Exp] = Exp ;
-                        advance();
-                        parseExp();
-                        eatToken(Token.Kind.RBRACKET);
-                        eatToken(Token.Kind.ASSIGN);
-                        parseExp();
-                        eatToken(Token.Kind.SEMI);
-                        return;
-                    }
-                    else error(STR."parse statement failed in case ID, got \{current.kind}");
+                    int index = parseExp();
+                    eatToken(Token.Kind.RBRACKET);
+                    eatToken(Token.Kind.ASSIGN);
+                    int exp = parseExp();
+                    eatToken(Token.Kind.SEMI);
+                    return arena.node(Arena.Kind.ASSIGN_ARRAY, start, length, name, index, exp);
                 }
-            default: error("parse statement failed, no token matched");
+                else syntaxError(STR."expects ASSIGN or LBRACKET, but got \{current}");
+            }
+            default: syntaxError(STR."expects a statement, but got \{current}");
         }
+        return Arena.NONE;
     }
 
     // Statements -> Statement Statements
     // ->
+    // the statements of a method body, emitted for the caller or
+    // a listener; those of a block are parsed by parseStatement()
     private void parseStatements() {
         // throw new Todo();
-        while (current.kind == Token.Kind.LBRACE
-                || current.kind == Token.Kind.IF
-                || current.kind == Token.Kind.WHILE
-                || current.kind == Token.Kind.SYSTEM
-                || current.kind == Token.Kind.ID) {
+        int depth = this.depth;
+        while (startsStatement(current)) {
             // 这些开头的都是 statement，否则不是，停止继续解析
-            parseStatement();
+            int mark = arena.mark();
+            int size = arena.size();
+            try {
+                emit(parseStatement(), size);
+            } catch (SyntaxError e) {
+                recover(mark, size, depth);
+            }
         }
     }
 
@@ -358,85 +766,69 @@ public class Parser {
     // -> int
     // -> id
     // 这里id指的是类名
-    private void parseType() {
+    private int parseType() {
         // to parse a type.
         // throw new Todo();
-        switch (current.kind) {
+        switch (current) {
             case INT:
+                int start = tokens.start();
+                int length = tokens.length();
                 advance();
-                if (current.kind == Token.Kind.LBRACKET) {
+                if (current == Token.Kind.LBRACKET) {
                     // int []
                     eatToken(Token.Kind.LBRACKET);
                     eatToken(Token.Kind.RBRACKET);
-                    return;
+                    return arena.leaf(Arena.Kind.INT_ARRAY_TYPE, start, length);
                 }
                 else {
                     // int
-                    return;
+                    return arena.leaf(Arena.Kind.INT_TYPE, start, length);
                 }
             case BOOLEAN:
-                advance();
-                return;
+                return leaf(Arena.Kind.BOOLEAN_TYPE);
             case ID:
-                advance();
-                return;
+                return leaf(Arena.Kind.CLASS_TYPE);
             default:
-                error(STR."parseType failed, got \{current.kind}");
+                syntaxError(STR."expects a type, but got \{current}");
         }
+        return Arena.NONE;
     }
 
     // VarDecl -> Type id ;
     // id id ;
-    private void parseVarDecl() throws Exception {
+    private int parseVarDecl() {
         // to parse the "Type" non-terminal in this method,
         // instead of writing a fresh one.
-        parseType();
-        eatToken(Token.Kind.ID);
+        int type = parseType();
+        int name = eatName();
         eatToken(Token.Kind.SEMI);
-        return;
+        return arena.node(Arena.Kind.VAR_DECL, arena.start(name), arena.length(name), type, name);
     }
 
     // VarDecls -> VarDecl VarDecls
     // ->
-    private void parseVarDecls() throws Exception {
+    // 声明压到 arena 的栈上，由调用者生成结点
+    private void parseVarDecls() {
         // throw new util.Todo();
         // 注意一种情况：int i; i = 3;
-        // 循环到第二个语句时由于 i 是 ID，可以进入循环导致 赋值语句 被 parseVarDecl 解析
-        while (current.kind == Token.Kind.INT
-                || current.kind == Token.Kind.BOOLEAN
-                || current.kind == Token.Kind.ID) {
+        // 循环到第二个语句时由于 i 是 ID，可以进入循环，所以要向前多看一个 token
+        int depth = this.depth;
+        while (current == Token.Kind.INT
+                || current == Token.Kind.BOOLEAN
+                || current == Token.Kind.ID) {
             // 这里 while 判断 type 的三种类型，但 id 必须是 class 才行
-            if (current.kind != Token.Kind.ID) {
-                // boolean or int
-                parseVarDecl();
+            if (current == Token.Kind.ID && tokens.peek(1) != Token.Kind.ID) {
+                // id = exp ; 或 id [exp] = exp ; 是 statement，
+                // 声明到此结束，current 仍是这个 id，交给 parseStatements
+                return;
             }
-            else {
-                // current.kind = ID
-                // 要判断是 VarDecl 声明语句： id id ;
-                // 还是 statement 语句： id = exp ; || id [exp] = exp ;
-                // 若是 statement，不做额外的处理，因为在程序中，声明语句后应该就是 statements 语句块
-                // 此时解析到的真实位置是 current 对应的位置，而current现在是 = 或 [ 进不了 parseStatement
-                // 为了让解析过程能进入 parseStatement 语句中，把 current.kind 设置为 id
-                // 用 currentNext 记录一下现在是 = 还是 [
-
-                // 试探一下下面是 id, 还是别的东西
-                advance();
-                if (current.kind != Token.Kind.ID){
-                    // 不是变量声明
-                    currentNext = current;
-                    // current.kind = Token.Kind.ID;
-                    current = new Token(Token.Kind.ID, currentNext.rowNum, currentNext.colNum);
-                    isSpecial = true;
-                    // 此时已经不是声明语句，直接结束 parseVarDecls 的解析
-                    return;
-                }
-                else {
-                    // 若是还是id，说明还是声明语句，但此时 parser 已经到了 id id ; 中的第二个id处
-                    // 省个调用栈直接在这解析剩下的，也可以去 parseVarDecl 里面处理，同样用 isSpecial 判断
-                    eatToken(Token.Kind.ID);
-                    eatToken(Token.Kind.SEMI);
-                    // 继续循环
-                }
+            // boolean, int, or id id ;
+            int mark = arena.mark();
+            int size = arena.size();
+            try {
+                emit(parseVarDecl(), size);
+            } catch (SyntaxError e) {
+                recover(mark, size, depth);
             }
         }
         //        return;
@@ -447,18 +839,21 @@ public class Parser {
     // FormalRest -> , Type id
     // 唯一一个，可能在执行结束后，current不指向下一个token的函数
     // 因为eat 左括号后，当前可能是形参，也可能是右括号，是右括号的话直接返回给 methodDecl 中的eatToken
+    // 形参压到 arena 的栈上，由 parseMethod 生成结点
     private void parseFormalList() {
         // throw new Todo();
-        if (current.kind == Token.Kind.RPAREN) {
+        if (current == Token.Kind.RPAREN) {
             // advance();
             return;
         }
-        while (current.kind == Token.Kind.INT
-                || current.kind == Token.Kind.BOOLEAN
-                || current.kind == Token.Kind.ID) {
-            parseType();
-            eatToken(Token.Kind.ID);
-            if (current.kind == Token.Kind.COMMA) {
+        while (current == Token.Kind.INT
+                || current == Token.Kind.BOOLEAN
+                || current == Token.Kind.ID) {
+            int size = arena.size();
+            int type = parseType();
+            int name = eatName();
+            emit(arena.node(Arena.Kind.FORMAL, arena.start(name), arena.length(name), type, name), size);
+            if (current == Token.Kind.COMMA) {
                 // eatToken(Token.Kind.COMMA);
                 advance();
             }
@@ -468,17 +863,21 @@ public class Parser {
                 return;
             }
         }
-        error(STR."parseFormalList fail, got \{current.kind}");
+        syntaxError(STR."expects a type, but got \{current}");
     }
 
     // Method -> public Type id ( FormalList )
     // { VarDecl* Statement* return Exp ;}
-    private void parseMethod() throws Exception {
+    private int parseMethod() {
         // to parse a method.
         // throw new Todo();
+        trace("enter", "Method");
+        int mark = arena.mark();
         eatToken(Token.Kind.PUBLIC);
-        parseType();
-        eatToken(Token.Kind.ID);
+        arena.push(parseType());
+        int name = eatName();
+        arena.push(name);
+        enterMethod(name);
         eatToken(Token.Kind.LPAREN);    // (
         parseFormalList();
         eatToken(Token.Kind.RPAREN);    // )
@@ -486,51 +885,216 @@ public class Parser {
         parseVarDecls();
         parseStatements();
         eatToken(Token.Kind.RETURN);
-        parseExp();
+        int exp = parseExp();
+        arena.push(exp);
         eatToken(Token.Kind.SEMI);
         eatToken(Token.Kind.RBRACE);    // }
+        exitMethod(exp);
+        return arena.make(Arena.Kind.METHOD, arena.start(name), arena.length(name), mark);
     }
 
     // MethodDecls -> MethodDecl MethodDecls
     // ->
-    private void parseMethodDecls() throws Exception {
+    private void parseMethodDecls() {
         // throw new util.Todo();
-        while (current.kind == Token.Kind.PUBLIC) {
-            parseMethod();
+        int depth = this.depth;
+        while (current == Token.Kind.PUBLIC) {
+            int mark = arena.mark();
+            int size = arena.size();
+            try {
+                emit(parseMethod(), size);
+            } catch (SyntaxError e) {
+                exitMethod(Arena.NONE);
+                recover(mark, size, depth);
+            }
         }
     }
 
     // ClassDecl -> class id { VarDecl* MethodDecl* }
     // -> class id extends id { VarDecl* MethodDecl* }
-    private void parseClassDecl() throws Exception {
+    private int parseClassDecl() {
+        trace("enter", "ClassDecl");
+        int mark = arena.mark();
         eatToken(Token.Kind.CLASS);
-        eatToken(Token.Kind.ID);
+        int name = eatName();
+        arena.push(name);
         // throw new util.Todo();
-        if (current.kind == Token.Kind.LBRACE) {
-            advance();
-            parseVarDecls();
-            // parseVarDecls 已完成
-            parseMethodDecls();
-            eatToken(Token.Kind.RBRACE);
-        }
-        else if (current.kind == Token.Kind.EXTENDS) {
+        int superName = Arena.NONE;
+        if (current == Token.Kind.EXTENDS) {
             advance();
-            eatToken(Token.Kind.ID);
-            eatToken(Token.Kind.LBRACE);
-            parseVarDecls();
-            parseMethodDecls();
-            eatToken(Token.Kind.RBRACE);
+            superName = eatName();
         }
-        else error(STR."parseClassDecl fail, got \{current.kind}");
+        else if (current != Token.Kind.LBRACE)
+            syntaxError(STR."expects LBRACE or EXTENDS, but got \{current}");
+        arena.push(superName);
+        enterClass(name, superName);
+        eatToken(Token.Kind.LBRACE);
+        parseVarDecls();
+        parseMethodDecls();
+        eatToken(Token.Kind.RBRACE);
+        exitClass();
+        return arena.make(Arena.Kind.CLASS, arena.start(name), arena.length(name), mark);
     }
 
     // ClassDecls -> ClassDecl ClassDecls
     // ->
-    private void parseClassDecls() throws Exception {
-        while (current.kind.equals(Token.Kind.CLASS)) {
-            parseClassDecl();
+    private void parseClassDecls() {
+        if (!worker && !trace && parseClassDeclsParallel())
+            return;
+        parseClassDeclsUntil(Integer.MAX_VALUE);
+    }
+
+    // the same, up to a token starting at "end"
+    private void parseClassDeclsUntil(int end) {
+        while (current == Token.Kind.CLASS && tokens.start() < end) {
+            int mark = arena.mark();
+            int size = arena.size();
+            try {
+                emit(parseClassDecl(), size);
+            } catch (SyntaxError e) {
+                exitClass();
+                recover(mark, size, 0);
+            }
+        }
+    }
+
+    // /////////////////////////////////////////////
+    // parallel parsing of class declarations.
+    // Classes are independent, so a pre-scan by brace depth over the
+    // token stream splits them, groups of consecutive classes are
+    // parsed on "pool", each by a worker parser on its own arena,
+    // and the arenas are appended to this one in source order.
+    // The tree and the syntax errors are the same as the sequential
+    // parse finds.
+
+    // programs with fewer tokens of classes are parsed sequentially
+    private static final int MIN_PARALLEL_TOKENS = 1 << 16;
+
+    // the consecutive classes [first, last) of the pre-scan
+    private static class Group {
+        final int first;
+        final int last;
+        Arena arena;
+        int[] roots;
+        List<Diagnostic> diagnostics;
+        boolean failed;
+
+        Group(int first, int last) {
+            this.first = first;
+            this.last = last;
+        }
+    }
+
+    // a worker: a parser over the same token stream, from the
+    // token at "index" on
+    private Parser(Parser parent, int index, int capacity) {
+        this(parent.inputFileName, parent.options);
+        this.source = parent.source;
+        this.stream = parent.stream;
+        this.tokens = new Lookahead(stream.cursor(index), source, LOOKAHEAD);
+        this.arena = new Arena(source, capacity);
+        this.worker = true;
+        advance();
+    }
+
+    // the token indices at which each class declaration from "index"
+    // on starts, followed by the index of the final EOF; null unless
+    // the tokens are a sequence of "class ... { ... }" up to EOF
+    private int[] scanClasses(int index) {
+        int[] bounds = new int[16];
+        int n = 0;
+        int i = index;
+        while (stream.kind(i) == Token.Kind.CLASS) {
+            if (n == bounds.length)
+                bounds = Arrays.copyOf(bounds, n * 2);
+            bounds[n++] = i;
+            // class id [extends id] {
+            i++;
+            while (stream.kind(i) == Token.Kind.ID || stream.kind(i) == Token.Kind.EXTENDS)
+                i++;
+            if (stream.kind(i) != Token.Kind.LBRACE)
+                return null;
+            int depth = 0;
+            for (; ; i++) {
+                Token.Kind kind = stream.kind(i);
+                if (kind == Token.Kind.LBRACE)
+                    depth++;
+                else if (kind == Token.Kind.RBRACE && --depth == 0)
+                    break;
+                else if (kind == Token.Kind.EOF)
+                    return null;
+            }
+            i++;
         }
-        return;
+        if (stream.kind(i) != Token.Kind.EOF)
+            return null;
+        bounds = Arrays.copyOf(bounds, n + 1);
+        bounds[n] = i;
+        return bounds;
+    }
+
+    // parse the classes from the current token on in parallel,
+    // and leave the parser at EOF; false if they should be parsed
+    // sequentially instead
+    private boolean parseClassDeclsParallel() {
+        if (stream == null || pool.getParallelism() < 2 || current != Token.Kind.CLASS)
+            return false;
+        int index = stream.indexAt(tokens.start());
+        if (stream.size() - index < MIN_PARALLEL_TOKENS)
+            return false;
+        int[] bounds = scanClasses(index);
+        if (bounds == null)
+            return false;
+        return parseClassDeclsParallel(bounds, Math.min(pool.getParallelism() * 4, bounds.length - 1));
+    }
+
+    // the same, for the classes "bounds" in "groups" groups
+    boolean parseClassDeclsParallel(int[] bounds, int groups) {
+        int classes = bounds.length - 1;
+        Group[] work = new Group[groups];
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (int g = 0; g < groups; g++) {
+            Group group = new Group((int) ((long) classes * g / groups), (int) ((long) classes * (g + 1) / groups));
+            work[g] = group;
+            tasks.add(pool.submit(() -> parseGroup(group, bounds)));
+        }
+        for (ForkJoinTask<?> task : tasks)
+            task.join();
+
+        for (Group group : work) {
+            if (group.failed) {
+                // parse again from the failing group on, sequentially
+                this.tokens = new Lookahead(stream.cursor(bounds[group.first]), source, LOOKAHEAD);
+                advance();
+                parseClassDeclsUntil(Integer.MAX_VALUE);
+                return true;
+            }
+            int offset = arena.append(group.arena);
+            for (int root : group.roots)
+                arena.push(root + offset);
+            diagnostics.addAll(group.diagnostics);
+        }
+        this.tokens = new Lookahead(stream.cursor(bounds[classes]), source, LOOKAHEAD);
+        advance();
+        return true;
+    }
+
+    private void parseGroup(Group group, int[] bounds) {
+        int from = bounds[group.first];
+        int to = bounds[group.last];
+        // about one node per two tokens
+        Parser worker = new Parser(this, from, (to - from) / 2 + 16);
+        int end = stream.start(to);
+        try {
+            worker.parseClassDeclsUntil(end);
+            // a recovery may skip past the group, or stop short of it
+            group.failed = worker.tokens.start() != end;
+        } catch (Exception e) {
+            group.failed = true;
+        }
+        group.arena = worker.arena;
+        group.roots = worker.arena.pop(0);
+        group.diagnostics = worker.diagnostics;
     }
 
     // MainClass -> class id {
@@ -538,65 +1102,211 @@ public class Parser {
     //     Statement
     //   }
     // }
-    private void parseMainClass() {
+    private int parseMainClass() {
         // Lab 1. Exercise 11: Fill in the missing code
         // to parse a main class as described by the
         // grammar above.
         // throw new Todo();
+        trace("enter", "MainClass");
         eatToken(Token.Kind.CLASS);
-        eatToken(Token.Kind.ID);
+        int name = eatName();
+        enterClass(name, Arena.NONE);
         eatToken(Token.Kind.LBRACE);    // {
         eatToken(Token.Kind.PUBLIC);
         eatToken(Token.Kind.STATIC);
         eatToken(Token.Kind.VOID);
+        int start = tokens.start();
+        int length = tokens.length();
         eatToken(Token.Kind.MAIN);
+        if (listener != null)
+            enterMethod(arena.leaf(Arena.Kind.NAME, start, length));
         eatToken(Token.Kind.LPAREN);    // (
         eatToken(Token.Kind.STRING);
         eatToken(Token.Kind.LBRACKET);
         eatToken(Token.Kind.RBRACKET);
-        eatToken(Token.Kind.ID);
+        int arg = eatName();
         eatToken(Token.Kind.RPAREN);    // )
         eatToken(Token.Kind.LBRACE);    // {
         // error("eatToken LBRACE done");
-        parseStatement();
+        int size = arena.size();
+        int stm = parseStatement();
+        if (listener != null) {
+            emit(stm, size);
+            stm = Arena.NONE;
+        }
         // error("parseStatement done");
         eatToken(Token.Kind.RBRACE);    // }
+        exitMethod(Arena.NONE);
         eatToken(Token.Kind.RBRACE);    // }
+        exitClass();
 
+        return arena.node(Arena.Kind.MAIN_CLASS, arena.start(name), arena.length(name), name, arg, stm);
     }
 
     // Program -> MainClass ClassDecl*
-    private void parseProgram() throws Exception {
-        parseMainClass();
+    private int parseProgram() {
+        int mark = arena.mark();
+        parseClasses(true);
+        return arena.make(Arena.Kind.PROGRAM, 0, 0, mark);
+    }
 
-        parseClassDecls();
-        eatToken(Token.Kind.EOF);
-        return;
+    // the main class if "main", then the class declarations up to
+    // EOF, pushed for the caller
+    void parseClasses(boolean main) {
+        parseClasses(main, Integer.MAX_VALUE);
     }
 
-    private void initParser() {
+    // the same, up to EOF or a "class" starting at "end", which is
+    // left as the lookahead of the last class, for Reparser
+    void parseClasses(boolean main, int end) {
+        if (main) {
+            int mark = arena.mark();
+            int size = arena.size();
+            try {
+                emit(parseMainClass(), size);
+            } catch (SyntaxError e) {
+                exitClass();
+                recover(mark, size, 0);
+            }
+        }
+
+        if (end == Integer.MAX_VALUE)
+            parseClassDecls();
+        else
+            parseClassDeclsUntil(end);
+        while (current != Token.Kind.EOF && tokens.start() < end) {
+            // stray tokens after a class, skipped up to the next one
+            try {
+                eatToken(Token.Kind.EOF);
+            } catch (SyntaxError e) {
+                while (current != Token.Kind.CLASS && current != Token.Kind.EOF)
+                    advance();
+                depth = 0;
+            }
+            parseClassDeclsUntil(end);
+        }
+    }
+
+    // a single method up to EOF, for Reparser; NONE if the
+    // tokens are not exactly one method without syntax errors
+    int parseMethodRegion() {
         try {
-            this.inputStream = new BufferedInputStream(new FileInputStream(this.inputFileName));
-        } catch (Exception e) {
+            int method = parseMethod();
+            if (current == Token.Kind.EOF && diagnostics.isEmpty())
+                return method;
+        } catch (SyntaxError e) {
+            // reported in "diagnostics"
+        }
+        return Arena.NONE;
+    }
+
+    // the tokens of a source opened here, by file name, may be cached
+    private void initParser() throws IOException {
+        boolean opened = this.source == null;
+        if (opened)
+            this.source = Source.map(this.inputFileName);
+
+        if (trace)
+            this.tracer = new Trace(this.output);
+        this.lexer = new Lexer(this.source, this.options, this.output);
+        if (this.listener != null) {
+            // on demand, neither buffered nor cached
+            this.tokens = new Lookahead(this.lexer, this.source, LOOKAHEAD);
+            this.arena = new Arena(this.source, 256);
+            advance();
+            return;
+        }
+        TokenCursor cursor;
+        if (options.pipeline()) {
+            this.pipe = new TokenPipe(this.lexer, this.source);
+            this.pipe.startLexer();
+            cursor = this.pipe;
+        } else {
+            this.stream = opened ? lexer.lexAllCached(this.pool) : lexer.lexAllParallel(this.pool);
+            cursor = this.stream.cursor();
+        }
+        if (options.llParser()) {
+            // it walks the tokens itself, and makes no tree
+            this.recognizer = new LLParser(this.source, cursor);
+            return;
+        }
+        this.tokens = new Lookahead(cursor, this.source, LOOKAHEAD);
+        this.arena = new Arena(this.source);
+        advance();
+    }
+
+    // parse the program, or, with a recognizer, only check its
+    // syntax, up to the first syntax error, leaving "arena" null
+    private void parseFile() {
+        try {
+            if (recognizer == null) {
+                parseProgram();
+                return;
+            }
+            Diagnostic error = recognizer.recognize();
+            if (error != null)
+                diagnostics.add(error);
+        } finally {
+            // stop the lexer thread, should the parse end before EOF
+            if (pipe != null)
+                pipe.cancel();
+        }
+    }
+
+    // parse the file into a syntax tree, whose root is
+    // the PROGRAM node, arena.root(); report every syntax
+    // error and abort if there is any. With Options.llParser,
+    // only check the syntax, and return null
+    public Arena parse() {
+        try {
+            initParser();
+        } catch (IOException e) {
             error(STR."unable to open file \{this.inputFileName}");
         }
+        parseFile();
+        flushTrace();
+        if (pipe != null)
+            System.err.println(STR."pipeline: \{pipe.tokens()} tokens, producer stalls \{pipe.producerStalls()}, consumer stalls \{pipe.consumerStalls()}");
+        if (!diagnostics.isEmpty()) {
+            for (Diagnostic diagnostic : diagnostics)
+                System.out.println(diagnostic.format(inputFileName));
+            error(STR."\{diagnostics.size()} syntax error(s)");
+        }
+        if (arena != null)
+            arena.trim();
+        return arena;
+    }
 
-        this.lexer = new Lexer(this.inputFileName, this.inputStream);
-        this.current = lexer.nextToken();
+    // parse the file into a syntax tree, as parse() does, but
+    // return the syntax errors rather than report them, see Compiler
+    List<Diagnostic> check() {
+        if (!open())
+            return diagnostics;
+        parseFile();
+        return diagnostics;
     }
 
-    private void finalizeParser() {
+    // initParser(), or else the error of a file that cannot be opened
+    private boolean open() {
         try {
-            this.inputStream.close();
-        } catch (Exception e) {
-            error("unable to close file");
+            initParser();
+            return true;
+        } catch (IOException e) {
+            diagnostics.add(new Diagnostic(0, 0, STR."unable to open file \{this.inputFileName}"));
+            return false;
         }
     }
 
-    public Object parse() throws Exception {
-        initParser();
+    // parse the file into events to "listener" rather than a tree, in
+    // memory bounded by the largest statement instead of the file:
+    // the parser pulls each token from the lexer when it needs it.
+    // The syntax errors are returned rather than reported
+    public List<Diagnostic> parse(ParseListener listener) {
+        this.listener = listener;
+        if (!open())
+            return diagnostics;
         parseProgram();
-        finalizeParser();
-        return null;
+        flushTrace();
+        return diagnostics;
     }
 }
\ No newline at end of file
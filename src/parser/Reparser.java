@@ -0,0 +1,403 @@
+package parser;
+
+import ast.Arena;
+import ast.Ast;
+import lexer.Lexer;
+import lexer.Source;
+import lexer.Token;
+import lexer.TokenStream;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// incremental parsing, for tools that parse a file again on every
+// edit. The file is split into regions of whole lines, from a line
+// that starts with "class" on, each with its own copy of the text and
+// its classes as records. Offsets and rows within a region are
+// relative to it, so an edit moves nothing after it: only the length
+// of its region changes, in a Fenwick tree of region lengths that
+// locates the next edits.
+// An edit lexes and parses again only
+//   the method it lies inside, if any, or else
+//   the regions it touches, with the one before if it is on the first
+//   line of a region, and the one after if it takes away the line
+//   break that ends a region,
+// and splices the new records into the old ones, keeping every other
+// record. The tree is the one a parse of the whole file makes, as long
+// as the file has no syntax errors. A region is parsed with the first
+// line of the next one after it, whose "class" is its lookahead, so
+// its syntax errors are also those of a parse of the whole file, while
+// each region still starts with a "class".
+public class Reparser {
+    public final String fileName;
+    private final List<Region> regions = new ArrayList<>();
+    // fenwick[i] sums the lengths of regions (i - (i & -i), i]
+    private int[] fenwick;
+    // the bytes lexed and parsed by the last edit
+    private int reparsed;
+
+    // whole lines of the file
+    private static class Region {
+        byte[] text;
+        int newlines;
+        // the main class, in the first region only
+        Ast.MainClass mainClass;
+        final List<Ast.Class> classes = new ArrayList<>();
+        // the methods of "classes", in order, as text[starts[i], ends[i]);
+        // none if the region has syntax errors
+        int[] starts = new int[0];
+        int[] ends = new int[0];
+        // rows relative to the region
+        List<Diagnostic> diagnostics;
+    }
+
+    public Reparser(String fileName, byte[] text) {
+        this.fileName = fileName;
+        this.regions.addAll(split(text, true, null));
+        this.reparsed = text.length;
+        rebuild();
+    }
+
+    // /////////////////////////////////////////////
+    // the Fenwick tree.
+
+    private void rebuild() {
+        this.fenwick = new int[this.regions.size() + 1];
+        for (int i = 0; i < this.regions.size(); i++)
+            add(i, this.regions.get(i).text.length);
+    }
+
+    private void add(int region, int delta) {
+        for (int i = region + 1; i < this.fenwick.length; i += i & -i)
+            this.fenwick[i] += delta;
+    }
+
+    // the offset at which "region" starts
+    private int base(int region) {
+        int sum = 0;
+        for (int i = region; i > 0; i -= i & -i)
+            sum += this.fenwick[i];
+        return sum;
+    }
+
+    // the region containing "offset"; the last one for the end of the file
+    private int locate(int offset) {
+        int region = 0;
+        for (int step = Integer.highestOneBit(this.fenwick.length); step > 0; step >>= 1) {
+            int next = region + step;
+            if (next < this.fenwick.length && this.fenwick[next] <= offset) {
+                region = next;
+                offset -= this.fenwick[next];
+            }
+        }
+        return Math.min(region, this.regions.size() - 1);
+    }
+
+    // /////////////////////////////////////////////
+    // parsing.
+
+    // the regions of "text", the first of which holds the main class if
+    // "main", and which is followed by the region "next", null at the end
+    // of the file; null if "text" ends in an open comment before "next"
+    private List<Region> split(byte[] text, boolean main, byte[] next) {
+        Source source = new Source(this.fileName, ByteBuffer.wrap(text));
+        TokenStream tokens = new Lexer(source).lexAll();
+        int eof = tokens.size() - 1;
+        if (next != null && openComment(text, (eof == 0) ? 0 : end(tokens, eof - 1), text.length))
+            return null;
+
+        List<Region> regions = new ArrayList<>();
+        int from = 0;
+        int depth = 0;
+        boolean first = true;
+        for (int i = 0; i < eof; i++) {
+            switch (tokens.kind(i)) {
+                case LBRACE -> depth++;
+                case RBRACE -> depth--;
+                case CLASS -> {
+                    // a class after the first, first on its line
+                    int cut = source.lineStart(tokens.line(i));
+                    if (depth == 0 && !first && tokens.line(i - 1) < tokens.line(i)
+                            && !openComment(text, end(tokens, i - 1), cut)) {
+                        regions.add(parse(Arrays.copyOfRange(text, from, cut), firstLine(text, cut), main && regions.isEmpty()));
+                        from = cut;
+                    }
+                    first = false;
+                }
+                default -> {
+                }
+            }
+        }
+        if (from < text.length || regions.isEmpty() && main)
+            regions.add(parse(Arrays.copyOfRange(text, from, text.length), (next == null) ? null : firstLine(next, 0), main && regions.isEmpty()));
+        return regions;
+    }
+
+    private static int end(TokenStream tokens, int index) {
+        return tokens.start(index) + tokens.length(index);
+    }
+
+    // whether the trivia text[from, to) may open a "/*" comment,
+    // which would run on past "to"
+    private static boolean openComment(byte[] text, int from, int to) {
+        for (int i = from; i + 1 < to; i++)
+            if (text[i] == '/' && text[i + 1] == '*')
+                return true;
+        return false;
+    }
+
+    // the line of "text" from "from" on, with its '\n'
+    private static byte[] firstLine(byte[] text, int from) {
+        int to = from;
+        while (to < text.length && text[to] != '\n')
+            to++;
+        return Arrays.copyOfRange(text, from, Math.min(to + 1, text.length));
+    }
+
+    // "text" is followed by the line "lookahead", which starts with the
+    // "class" of the next region, or by the end of the file if null
+    private Region parse(byte[] text, byte[] lookahead, boolean main) {
+        Region region = new Region();
+        region.text = text;
+        region.newlines = newlines(text, 0, text.length);
+        byte[] input = (lookahead == null) ? text : splice(text, text.length, 0, lookahead);
+        Source source = new Source(this.fileName, ByteBuffer.wrap(input));
+        TokenStream tokens = new Lexer(source).lexAll();
+        // the next region lost its "class" in an edit, so that the
+        // parser could run on into it: end this one at EOF instead
+        int next = tokens.indexAt(text.length);
+        if (lookahead != null && tokens.kind((next >= 0) ? next : -next - 1) != Token.Kind.CLASS) {
+            source = new Source(this.fileName, ByteBuffer.wrap(text));
+            tokens = new Lexer(source).lexAll();
+        }
+        Parser parser = new Parser(source, tokens.cursor());
+        parser.parseClasses(main, text.length);
+        Ast.Builder builder = new Ast.Builder(parser.arena);
+        for (int node : parser.arena.pop(0)) {
+            if (parser.arena.kind(node) == Arena.Kind.MAIN_CLASS)
+                region.mainClass = builder.mainClass(node);
+            else
+                region.classes.add(builder.clazz(node));
+        }
+        region.diagnostics = parser.diagnostics;
+        if (region.diagnostics.isEmpty())
+            findMethods(region, tokens, text.length);
+        return region;
+    }
+
+    // the methods of "region", by brace depth over its tokens
+    // before "end", unless they do not match its records
+    private static void findMethods(Region region, TokenStream tokens, int end) {
+        int n = 0;
+        for (Ast.Class clazz : region.classes)
+            n += clazz.methods().size();
+        int[] starts = new int[n];
+        int[] ends = new int[n];
+        int k = 0;
+        int depth = 0;
+        int start = -1;
+        for (int i = 0; i < tokens.size() - 1 && tokens.start(i) < end; i++) {
+            switch (tokens.kind(i)) {
+                case PUBLIC -> {
+                    // not "public static void main"
+                    if (depth == 1 && tokens.kind(i + 1) != Token.Kind.STATIC)
+                        start = tokens.start(i);
+                }
+                case LBRACE -> depth++;
+                case RBRACE -> {
+                    if (--depth == 1 && start >= 0) {
+                        if (k == n)
+                            return;
+                        starts[k] = start;
+                        ends[k++] = tokens.start(i) + 1;
+                        start = -1;
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+        if (k == n) {
+            region.starts = starts;
+            region.ends = ends;
+        }
+    }
+
+    private static int newlines(byte[] text, int from, int to) {
+        int n = 0;
+        for (int i = from; i < to; i++)
+            if (text[i] == '\n')
+                n++;
+        return n;
+    }
+
+    private static byte[] splice(byte[] text, int offset, int removed, byte[] inserted) {
+        byte[] result = new byte[text.length - removed + inserted.length];
+        System.arraycopy(text, 0, result, 0, offset);
+        System.arraycopy(inserted, 0, result, offset, inserted.length);
+        System.arraycopy(text, offset + removed, result, offset + inserted.length, text.length - offset - removed);
+        return result;
+    }
+
+    // /////////////////////////////////////////////
+    // editing.
+
+    // replace the "removed" bytes at "offset" with "inserted",
+    // and parse what the edit touches again
+    public void edit(int offset, int removed, byte[] inserted) {
+        if (offset < 0 || removed < 0 || offset + removed > length())
+            throw new IndexOutOfBoundsException(STR."edit [\{offset}, \{offset + removed}) of \{length()} bytes");
+        int first = locate(offset);
+        int base = base(first);
+        // an edit on the first line of a region may take away the
+        // "class" that ends the region before it, so that one is
+        // parsed again too
+        if (first > 0 && offset - base < firstLine(this.regions.get(first).text, 0).length) {
+            first--;
+            base = base(first);
+        } else if (editMethod(first, offset - base, removed, inserted))
+            return;
+
+        // the regions that the edit touches, the next one too if it
+        // takes away the line break before it, and then those that an
+        // open comment runs on into
+        int last = first;
+        int end = base + this.regions.get(first).text.length;
+        while (offset + removed >= end && last + 1 < this.regions.size())
+            end += this.regions.get(++last).text.length;
+        while (true) {
+            byte[] text = new byte[end - base];
+            int at = 0;
+            for (int i = first; i <= last; i++) {
+                byte[] part = this.regions.get(i).text;
+                System.arraycopy(part, 0, text, at, part.length);
+                at += part.length;
+            }
+            text = splice(text, offset - base, removed, inserted);
+            byte[] next = (last + 1 < this.regions.size()) ? this.regions.get(last + 1).text : null;
+            List<Region> parsed = split(text, first == 0, next);
+            if (parsed != null) {
+                this.reparsed = text.length;
+                replace(first, last, parsed);
+                return;
+            }
+            // on to the region with the "*/" that closes the comment
+            do {
+                end += this.regions.get(++last).text.length;
+            } while (last + 1 < this.regions.size() && !closesComment(this.regions.get(last).text));
+        }
+    }
+
+    private static boolean closesComment(byte[] text) {
+        for (int i = 0; i + 1 < text.length; i++)
+            if (text[i] == '*' && text[i + 1] == '/')
+                return true;
+        return false;
+    }
+
+    // the regions [first, last] are now "parsed"
+    private void replace(int first, int last, List<Region> parsed) {
+        if (parsed.size() == last - first + 1) {
+            for (int i = 0; i < parsed.size(); i++) {
+                Region region = parsed.get(i);
+                add(first + i, region.text.length - this.regions.get(first + i).text.length);
+                this.regions.set(first + i, region);
+            }
+            return;
+        }
+        List<Region> old = this.regions.subList(first, last + 1);
+        old.clear();
+        old.addAll(parsed);
+        rebuild();
+    }
+
+    // parse only the method of region "index" that the edit at "offset"
+    // in it lies inside, if there is one; false if the edit changes
+    // more than that method
+    private boolean editMethod(int index, int offset, int removed, byte[] inserted) {
+        Region region = this.regions.get(index);
+        int m = Arrays.binarySearch(region.starts, offset);
+        m = (m >= 0) ? m - 1 : -m - 2;
+        // not on the first byte or the closing "}"
+        if (m < 0 || offset + removed >= region.ends[m])
+            return false;
+
+        int delta = inserted.length - removed;
+        byte[] text = splice(region.text, offset, removed, inserted);
+        byte[] method = Arrays.copyOfRange(text, region.starts[m], region.ends[m] + delta);
+        Source source = new Source(this.fileName, ByteBuffer.wrap(method));
+        Parser parser = new Parser(source, new Lexer(source));
+        int node = parser.parseMethodRegion();
+        if (node == Arena.NONE)
+            return false;
+
+        // the class of method "m", and its index there
+        int c = 0;
+        int k = m;
+        while (k >= region.classes.get(c).methods().size())
+            k -= region.classes.get(c++).methods().size();
+        Ast.Class clazz = region.classes.get(c);
+        List<Ast.Method> methods = new ArrayList<>(clazz.methods());
+        methods.set(k, new Ast.Builder(parser.arena).method(node));
+        region.classes.set(c, new Ast.Class(clazz.id(), clazz.extends_(), clazz.decs(), methods));
+
+        region.newlines += newlines(inserted, 0, inserted.length) - newlines(region.text, offset, offset + removed);
+        region.text = text;
+        region.ends[m] += delta;
+        for (int i = m + 1; i < region.starts.length; i++) {
+            region.starts[i] += delta;
+            region.ends[i] += delta;
+        }
+        add(index, delta);
+        this.reparsed = method.length;
+        return true;
+    }
+
+    // /////////////////////////////////////////////
+    // the result.
+
+    public int length() {
+        return base(this.regions.size());
+    }
+
+    // the bytes lexed and parsed again by the last edit, or
+    // by the first parse
+    public int reparsed() {
+        return this.reparsed;
+    }
+
+    public byte[] text() {
+        byte[] text = new byte[length()];
+        int at = 0;
+        for (Region region : this.regions) {
+            System.arraycopy(region.text, 0, text, at, region.text.length);
+            at += region.text.length;
+        }
+        return text;
+    }
+
+    public Ast.Program tree() {
+        Ast.MainClass mainClass = null;
+        List<Ast.Class> classes = new ArrayList<>();
+        for (Region region : this.regions) {
+            if (region.mainClass != null)
+                mainClass = region.mainClass;
+            classes.addAll(region.classes);
+        }
+        return new Ast.Program(mainClass, classes);
+    }
+
+    // the syntax errors, in rows of the whole file
+    public List<Diagnostic> diagnostics() {
+        List<Diagnostic> diagnostics = new ArrayList<>();
+        int rows = 0;
+        for (Region region : this.regions) {
+            for (Diagnostic diagnostic : region.diagnostics)
+                diagnostics.add(new Diagnostic(rows + diagnostic.row(), diagnostic.column(), diagnostic.message()));
+            rows += region.newlines;
+        }
+        return diagnostics;
+    }
+}
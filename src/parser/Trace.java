@@ -0,0 +1,53 @@
+package parser;
+
+import lexer.Token;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+// parse events, for debugging the parser, turned on by "-trace parser".
+// One event per line, tab-separated:
+//   event, rule, kind of the current token, line of the current token
+// e.g. "exit	NotExp	RPAREN	12".
+//
+// Tracing is an option of each compilation, see Options.trace; a
+// parser tests it at its trace points in a final field, a load and a
+// branch that is never taken when tracing is off. A parser that traces
+// has a Trace of its own, over its output, see Parser.output, so that
+// the events of one compilation are never mixed with another's. This
+// class, and its buffer, are only loaded by a parser that traces.
+final class Trace {
+    private final Writer out;
+
+    Trace(OutputStream out) {
+        this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.ISO_8859_1), 1 << 16);
+    }
+
+    void event(String event, String rule, Token.Kind current, int line) {
+        try {
+            out.write(event);
+            out.write('\t');
+            out.write(rule);
+            out.write('\t');
+            out.write(current.name());
+            out.write('\t');
+            out.write(Integer.toString(line));
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    void flush() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
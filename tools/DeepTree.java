@@ -0,0 +1,61 @@
+import ast.Ast;
+import parser.Compiler;
+import parser.Reparser;
+
+import java.nio.charset.StandardCharsets;
+
+// a regression check that deep programs cost no Java stack: each of
+// a long "a + a + ..." chain, a run of "!", nested blocks and nested
+// whiles must compile without errors, and its tree must be made, both
+// by Compiler.Result.tree() and by Reparser.
+//   java --enable-preview DeepTree [depth]
+public class DeepTree {
+    private static String program(String statement) {
+        return STR."""
+                class Main {
+                    public static void main(String[] a) {
+                        \{statement}
+                    }
+                }
+                """;
+    }
+
+    private static String repeat(String open, String inner, String close, int depth) {
+        return open.repeat(depth) + inner + close.repeat(depth);
+    }
+
+    public static void main(String[] args) {
+        int depth = (args.length > 0) ? Integer.parseInt(args[0]) : 100_000;
+        String[][] inputs = {
+                {"a + a + ...", program(STR."System.out.println(a\{" + a".repeat(depth)});")},
+                {"! ! ...", program(STR."System.out.println(\{"!".repeat(depth)}true);")},
+                {"{ { ... } }", program(repeat("{", "System.out.println(1);", "}", depth))},
+                {"while ... while", program(repeat("while (true) ", "System.out.println(1);", "", depth))},
+        };
+        int failed = 0;
+        for (String[] input : inputs) {
+            String result;
+            try {
+                Compiler.Result compiled = Compiler.compile("deep.java", input[1]);
+                Ast.Program tree = compiled.tree();
+                Reparser reparser = new Reparser("deep.java", input[1].getBytes(StandardCharsets.UTF_8));
+                if (!compiled.ok())
+                    result = STR."syntax errors \{compiled.diagnostics()}";
+                else if (!reparser.diagnostics().isEmpty())
+                    result = STR."Reparser syntax errors \{reparser.diagnostics()}";
+                // the records' equals() recurses, so only their tops are compared
+                else if (tree == null || reparser.tree().mainClass().stm().getClass() != tree.mainClass().stm().getClass())
+                    result = "no tree";
+                else
+                    result = "ok";
+            } catch (StackOverflowError e) {
+                result = "stack overflow";
+            }
+            if (!result.equals("ok"))
+                failed++;
+            System.out.println(STR."\{input[0]} (\{depth}): \{result}");
+        }
+        if (failed != 0)
+            System.exit(1);
+    }
+}
@@ -0,0 +1,100 @@
+import lexer.Lexer;
+import lexer.Source;
+import lexer.Token;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+// a stress check that all lexer state is confined to the Lexer
+// instance: it lexes each file once on the main thread, then lexes
+// the files "rounds" times in total on "threads" threads, half of
+// them over the Source shared by every thread, half over a Source
+// of their own, and compares each token stream, by kind, lexeme,
+// row and column, with the sequential one.
+//   java --enable-preview LexStress [-threads n] [-rounds n] <file|dir>...
+public class LexStress {
+    private static List<String> lex(Source source) {
+        Lexer lexer = new Lexer(source);
+        List<String> tokens = new ArrayList<>();
+        Token token;
+        do {
+            token = lexer.nextToken();
+            tokens.add(STR."\{token.kind} \{token.lexeme()} \{token.rowNum()}:\{token.colNum()}");
+        } while (token.kind != Token.Kind.EOF);
+        return tokens;
+    }
+
+    private static void add(List<String> files, String name) throws IOException {
+        Path path = Path.of(name);
+        if (!Files.isDirectory(path)) {
+            files.add(name);
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(path)) {
+            paths.filter(p -> p.toString().endsWith(".java") && Files.isRegularFile(p))
+                    .sorted()
+                    .forEach(p -> files.add(p.toString()));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int threads = 32;
+        int rounds = 2000;
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-threads" -> threads = Integer.parseInt(args[++i]);
+                case "-rounds" -> rounds = Integer.parseInt(args[++i]);
+                default -> add(files, args[i]);
+            }
+        }
+        if (files.isEmpty()) {
+            System.err.println("usage: LexStress [-threads n] [-rounds n] <file|dir>...");
+            System.exit(1);
+        }
+
+        List<Source> sources = new ArrayList<>();
+        List<List<String>> expected = new ArrayList<>();
+        for (String file : files) {
+            Source source = Source.map(file);
+            sources.add(source);
+            expected.add(lex(Source.map(file)));
+        }
+
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger mismatches = new AtomicInteger();
+        int total = rounds;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            workers.add(pool.submit(() -> {
+                for (int round; (round = next.getAndIncrement()) < total; ) {
+                    int f = round % files.size();
+                    Source source = (round / files.size() % 2 == 0)
+                            ? sources.get(f)
+                            : Source.map(files.get(f));
+                    if (!lex(source).equals(expected.get(f))) {
+                        mismatches.incrementAndGet();
+                        System.err.println(STR."\{files.get(f)}: round \{round} differs from the sequential run");
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> worker : workers)
+            worker.get();
+        pool.shutdown();
+
+        System.out.println(STR."\{files.size()} files, \{rounds} rounds on \{threads} threads, \{mismatches.get()} mismatches");
+        if (mismatches.get() != 0)
+            System.exit(1);
+    }
+}
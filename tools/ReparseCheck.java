@@ -0,0 +1,130 @@
+import parser.Compiler;
+import parser.Reparser;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+// a check that Reparser agrees with a parse of the whole file: it makes
+// "edits" random edits in all to the given files, or the .java files
+// under the given directories, each time going back to the file as it
+// was now and then, and after each edit compares the text, the syntax
+// errors and, if there are none, the tree of the Reparser with those of
+// Compiler.compile over the same text.
+//   java --enable-preview ReparseCheck [-edits n] [-seed n] <file|dir>...
+public class ReparseCheck {
+    // what an edit inserts
+    private static final String[] INSERTS = {
+            "}", "{", ";", "(", ")", "x", " ", "\n", "/*", "*/", "//", "class", "int",
+            "a = b;", "class A {\n", "}\n", "int x;\n", "public int f() { return 1; }\n",
+    };
+    // edits, as offset and inserted text, made first to each file: in
+    // test/Sum.java, these once left an error that the file does not have
+    private static final Object[][] FIXED = {{5, "}"}, {115, "a = b;"}};
+
+    private static void add(List<String> files, String name) throws IOException {
+        Path path = Path.of(name);
+        if (!Files.isDirectory(path)) {
+            files.add(name);
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(path)) {
+            paths.filter(p -> p.toString().endsWith(".java") && Files.isRegularFile(p))
+                    .sorted()
+                    .forEach(p -> files.add(p.toString()));
+        }
+    }
+
+    private static byte[] splice(byte[] text, int offset, int removed, byte[] inserted) {
+        byte[] result = new byte[text.length - removed + inserted.length];
+        System.arraycopy(text, 0, result, 0, offset);
+        System.arraycopy(inserted, 0, result, offset, inserted.length);
+        System.arraycopy(text, offset + removed, result, offset + inserted.length, text.length - offset - removed);
+        return result;
+    }
+
+    // what differs between "reparser" and a parse of "text", or null
+    private static String compare(Reparser reparser, byte[] text) {
+        Compiler.Result full = Compiler.compile(reparser.fileName, text);
+        if (!Arrays.equals(reparser.text(), text))
+            return "text";
+        if (!reparser.diagnostics().equals(full.diagnostics()))
+            return STR."syntax errors \{reparser.diagnostics()}, expected \{full.diagnostics()}";
+        if (full.ok() && !reparser.tree().equals(full.tree()))
+            return "tree";
+        return null;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int edits = 6000;
+        long seed = 1;
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-edits" -> edits = Integer.parseInt(args[++i]);
+                case "-seed" -> seed = Long.parseLong(args[++i]);
+                default -> add(files, args[i]);
+            }
+        }
+        if (files.isEmpty()) {
+            System.err.println("usage: ReparseCheck [-edits n] [-seed n] <file|dir>...");
+            System.exit(1);
+        }
+
+        Random random = new Random(seed);
+        int mismatches = 0;
+        int errors = 0;
+        for (int f = 0; f < files.size(); f++) {
+            byte[] original = Files.readAllBytes(Path.of(files.get(f)));
+            Reparser reparser = new Reparser(files.get(f), original);
+            byte[] text = original;
+            for (Object[] edit : FIXED) {
+                byte[] inserted = ((String) edit[1]).getBytes(StandardCharsets.UTF_8);
+                if ((int) edit[0] > text.length)
+                    break;
+                reparser.edit((int) edit[0], 0, inserted);
+                text = splice(text, (int) edit[0], 0, inserted);
+                String difference = compare(reparser, text);
+                if (difference != null) {
+                    mismatches++;
+                    System.err.println(STR."\{files.get(f)}: fixed edits: \{difference}");
+                }
+            }
+            reparser = new Reparser(files.get(f), original);
+            text = original;
+            int count = edits / files.size() + ((f < edits % files.size()) ? 1 : 0);
+            for (int e = 0; e < count; e++) {
+                if (random.nextInt(4) == 0) {
+                    reparser = new Reparser(files.get(f), original);
+                    text = original;
+                }
+                int offset = random.nextInt(text.length + 1);
+                int removed = random.nextBoolean() ? random.nextInt(Math.min(8, text.length - offset) + 1) : 0;
+                byte[] inserted = random.nextBoolean()
+                        ? INSERTS[random.nextInt(INSERTS.length)].getBytes(StandardCharsets.UTF_8)
+                        : new byte[0];
+                reparser.edit(offset, removed, inserted);
+                text = splice(text, offset, removed, inserted);
+                if (!reparser.diagnostics().isEmpty())
+                    errors++;
+                String difference = compare(reparser, text);
+                if (difference != null) {
+                    mismatches++;
+                    System.err.println(STR."\{files.get(f)}: edit \{e}, [\{offset}, \{offset + removed}) to \"\{new String(inserted, StandardCharsets.UTF_8)}\": \{difference}");
+                    // on from the file as it is, so that one mismatch is told once
+                    reparser = new Reparser(files.get(f), text);
+                }
+            }
+        }
+
+        System.out.println(STR."\{files.size()} files, \{edits} edits, \{errors} with syntax errors, \{mismatches} mismatches");
+        if (mismatches != 0)
+            System.exit(1);
+    }
+}